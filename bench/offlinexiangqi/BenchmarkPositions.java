@@ -0,0 +1,42 @@
+package offlinexiangqi;
+
+/**
+ * The positions the benchmarks run over<br>
+ * <br>
+ * The middlegames come from the engine playing itself for about twenty
+ * moves after different openings, so every piece type still has room to move.
+ * @author Jed Wang
+ */
+final class BenchmarkPositions {
+    /**
+     * Middlegame positions in FEN
+     */
+    static final String[] MIDDLEGAMES = {
+        "rn1akab2/8n/b1c6/p2R4p/7r1/2p1C1P2/P1P5P/2Cc2N2/4N4/2BAKAB1R w",
+        "r2akabnr/3n5/4b4/p7p/2p1p1N2/9/P1c1P1C1P/2N1B4/9/R1BAKA2R w",
+        "r1bakab1r/9/4c4/N3nCC1p/3n5/9/P3P3P/4B1c1N/9/R2AKAB1R w",
+        "r1bakab1r/4n4/1c4c2/p3P3p/5n3/2C6/P3P1p1P/2C3N2/R8/1NBAKAB1R w",
+        "1nbakab2/rR7/2n6/p3p1C1p/6P2/9/c1P5r/N3B2C1/9/2BAKA1R1 w",
+        "1r1akab2/9/2n1b4/p1C1p3p/1c4p2/1R6P/P1P1P3c/N7N/9/2BAKAB2 w",
+        "r1baka2r/3c5/1c1Nb3n/p7p/2p6/8C/P1n1P3P/4C4/9/RNBAKAB1R w",
+        "rnb1k3r/4a4/4b4/p1p2P2p/2n6/4c4/P1c5P/2N3C2/9/R1BAKABNR w"
+    };
+    
+    /**
+     * No instances
+     */
+    private BenchmarkPositions() {
+    }
+    
+    /**
+     * Sets up every middlegame, each on a board of its own
+     * @return the boards, with red to move
+     */
+    static XiangqiBoard[] middlegames() {
+        XiangqiBoard[] output = new XiangqiBoard[MIDDLEGAMES.length];
+        for(int i = 0; i < output.length; i++) {
+            output[i] = new XiangqiBoard(MIDDLEGAMES[i]);
+        }
+        return output;
+    }
+}
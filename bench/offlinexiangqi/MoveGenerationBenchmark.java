@@ -0,0 +1,179 @@
+package offlinexiangqi;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of whole-position move generation, check detection and board
+ * copying over the middlegame corpus. Each operation goes over every
+ * position of <code>BenchmarkPositions</code> once.<br>
+ * The <code>bitboard</code> benchmarks do the same on <code>BitboardPosition</code>,
+ * to compare the two.
+ * @author Jed Wang
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenerationBenchmark {
+    /**
+     * The positions
+     */
+    private XiangqiBoard[] boards;
+    
+    /**
+     * The same positions as bitboards
+     */
+    private BitboardPosition[] bitboards;
+    
+    /**
+     * The list moves are generated into
+     */
+    private final MoveList moves = new MoveList();
+    
+    /**
+     * Sets up the positions
+     */
+    @Setup
+    public void setUp() {
+        boards = BenchmarkPositions.middlegames();
+        bitboards = new BitboardPosition[boards.length];
+        for(int i = 0; i < boards.length; i++) {
+            bitboards[i] = new BitboardPosition(boards[i]);
+        }
+    }
+    
+    /**
+     * Every legal move, checking each for leaving the general in check
+     * @return how many moves there were
+     */
+    @Benchmark
+    public int generateLegalMoves() {
+        int output = 0;
+        for(XiangqiBoard xb : boards) {
+            moves.clear();
+            xb.generateLegalMoves(moves);
+            output += moves.size();
+        }
+        return output;
+    }
+    
+    /**
+     * Every pseudo-legal move
+     * @return how many moves there were
+     */
+    @Benchmark
+    public int generateMoves() {
+        int output = 0;
+        for(XiangqiBoard xb : boards) {
+            moves.clear();
+            xb.generateMoves(moves);
+            output += moves.size();
+        }
+        return output;
+    }
+    
+    /**
+     * Every pseudo-legal capture
+     * @return how many captures there were
+     */
+    @Benchmark
+    public int generateCaptures() {
+        int output = 0;
+        for(XiangqiBoard xb : boards) {
+            moves.clear();
+            xb.generateCaptures(moves);
+            output += moves.size();
+        }
+        return output;
+    }
+    
+    /**
+     * The board's own list of legal moves, as the interface refreshes it
+     * @param bh swallows the boards
+     */
+    @Benchmark
+    public void recalculateMoves(Blackhole bh) {
+        for(XiangqiBoard xb : boards) {
+            xb.recalculateMoves();
+            bh.consume(xb);
+        }
+    }
+    
+    /**
+     * Whether each side is in check
+     * @param bh swallows the results
+     */
+    @Benchmark
+    public void inCheck(Blackhole bh) {
+        for(XiangqiBoard xb : boards) {
+            bh.consume(xb.inCheck(true));
+            bh.consume(xb.inCheck(false));
+        }
+    }
+    
+    /**
+     * Copying a board, as every search thread does
+     * @param bh swallows the copies
+     */
+    @Benchmark
+    public void copyBoard(Blackhole bh) {
+        for(XiangqiBoard xb : boards) {
+            bh.consume(new XiangqiBoard(xb));
+        }
+    }
+    
+    /**
+     * Every legal move of the bitboards
+     * @return how many moves there were
+     */
+    @Benchmark
+    public int bitboardGenerateLegalMoves() {
+        int output = 0;
+        for(BitboardPosition bp : bitboards) {
+            moves.clear();
+            bp.generateLegalMoves(moves);
+            output += moves.size();
+        }
+        return output;
+    }
+    
+    /**
+     * Every pseudo-legal move of the bitboards
+     * @return how many moves there were
+     */
+    @Benchmark
+    public int bitboardGenerateMoves() {
+        int output = 0;
+        for(BitboardPosition bp : bitboards) {
+            moves.clear();
+            bp.generateMoves(moves);
+            output += moves.size();
+        }
+        return output;
+    }
+    
+    /**
+     * Whether each side of the bitboards is in check
+     * @param bh swallows the results
+     */
+    @Benchmark
+    public void bitboardInCheck(Blackhole bh) {
+        for(BitboardPosition bp : bitboards) {
+            bh.consume(bp.inCheck(true));
+            bh.consume(bp.inCheck(false));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package offlinexiangqi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of <code>AbstractPiece.legalMoves</code> for each piece type.
+ * Each operation finds the legal moves of every piece of the type that
+ * the side to move has in the middlegame corpus.
+ * @author Jed Wang
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PieceBenchmark {
+    /**
+     * The piece type to benchmark
+     */
+    @Param({"1", "2", "3", "4", "5", "6", "7"})
+    public int type;
+    
+    /**
+     * The board of every piece found
+     */
+    private XiangqiBoard[] boards;
+    
+    /**
+     * The square index of every piece found
+     */
+    private int[] squares;
+    
+    /**
+     * The square name of every piece found
+     */
+    private String[] names;
+    
+    /**
+     * The list moves are generated into
+     */
+    private final MoveList moves = new MoveList();
+    
+    /**
+     * Finds the pieces of the type in the corpus
+     */
+    @Setup
+    public void setUp() {
+        List<XiangqiBoard> foundBoards = new ArrayList<>();
+        List<Integer> foundSquares = new ArrayList<>();
+        for(XiangqiBoard xb : BenchmarkPositions.middlegames()) {
+            for(int square = 0; square < XiangqiBoard.BOARD_SIZE; square++) {
+                AbstractPiece ap = xb.getPiece(square);
+                if(ap == null || ap.getType() != type || ap.isRed != xb.isRedToMove()) continue;
+                foundBoards.add(xb);
+                foundSquares.add(square);
+            }
+        }
+        if(foundBoards.isEmpty()) throw new IllegalStateException("No pieces of type " + type);
+        boards = foundBoards.toArray(new XiangqiBoard[0]);
+        squares = new int[boards.length];
+        names = new String[boards.length];
+        for(int i = 0; i < boards.length; i++) {
+            squares[i] = foundSquares.get(i);
+            names[i] = XiangqiBoard.toSquare(squares[i]);
+        }
+    }
+    
+    /**
+     * Legal moves into a reused <code>MoveList</code>
+     * @return how many moves there were
+     */
+    @Benchmark
+    public int legalMoves() {
+        int output = 0;
+        for(int i = 0; i < boards.length; i++) {
+            moves.clear();
+            boards[i].getPiece(squares[i]).legalMoves(boards[i], squares[i], moves);
+            output += moves.size();
+        }
+        return output;
+    }
+    
+    /**
+     * Legal moves as a list of square names, as the interface asks for them
+     * @param bh swallows the lists
+     */
+    @Benchmark
+    public void legalMovesByName(Blackhole bh) {
+        for(int i = 0; i < boards.length; i++) {
+            bh.consume(boards[i].getPiece(names[i]).legalMoves(boards[i], names[i]));
+        }
+    }
+    
+    /**
+     * Pseudo-legal moves, without checking for checks
+     * @return how many moves there were
+     */
+    @Benchmark
+    public int generateMoves() {
+        int output = 0;
+        for(int i = 0; i < boards.length; i++) {
+            moves.clear();
+            boards[i].getPiece(squares[i]).generateMoves(boards[i], squares[i], moves);
+            output += moves.size();
+        }
+        return output;
+    }
+}
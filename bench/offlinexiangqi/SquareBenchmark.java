@@ -0,0 +1,88 @@
+package offlinexiangqi;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the square helpers, by name and by index. Each operation
+ * shifts every square of the board one step in each of four directions.
+ * @author Jed Wang
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SquareBenchmark {
+    /**
+     * The column and row shifts of the four directions
+     */
+    private static final int[] COL_SHIFTS = {1, -1, 0, 0}, ROW_SHIFTS = {0, 0, 1, -1};
+    
+    /**
+     * The name of every square
+     */
+    private final String[] names = new String[XiangqiBoard.BOARD_SIZE];
+    
+    /**
+     * Creates the benchmark state
+     */
+    public SquareBenchmark() {
+        for(int i = 0; i < names.length; i++) {
+            names[i] = XiangqiBoard.toSquare(i);
+        }
+    }
+    
+    /**
+     * <code>isValidSquare</code> on every square name
+     * @return how many were valid
+     */
+    @Benchmark
+    public int isValidSquareByName() {
+        int output = 0;
+        for(String name : names) {
+            if(XiangqiBoard.isValidSquare(name)) output++;
+        }
+        return output;
+    }
+    
+    /**
+     * <code>isValidShift</code> and <code>shiftSquare</code> on every square name
+     * @param bh swallows the shifted names
+     */
+    @Benchmark
+    public void shiftSquareByName(Blackhole bh) {
+        for(String name : names) {
+            for(int i = 0; i < 4; i++) {
+                // shiftSquare throws off the board, so check as callers do
+                if(XiangqiBoard.isValidShift(name, COL_SHIFTS[i], ROW_SHIFTS[i]))
+                    bh.consume(XiangqiBoard.shiftSquare(name, COL_SHIFTS[i], ROW_SHIFTS[i]));
+            }
+        }
+    }
+    
+    /**
+     * <code>shift</code> on every square index, for comparison
+     * @return the sum of the shifted indices
+     */
+    @Benchmark
+    public int shiftByIndex() {
+        int output = 0;
+        for(int square = 0; square < XiangqiBoard.BOARD_SIZE; square++) {
+            for(int i = 0; i < 4; i++) {
+                output += XiangqiBoard.shift(square, COL_SHIFTS[i], ROW_SHIFTS[i]);
+            }
+        }
+        return output;
+    }
+}
@@ -1,15 +1,11 @@
 package offlinexiangqi;
 
-import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
-import java.awt.image.RescaleOp;
-import java.io.File;
-import java.io.IOException;
 import java.util.LinkedList;
-import javax.imageio.ImageIO;
 
 /**
- * A class to represent any Xiangqi piece
+ * A class to represent any Xiangqi piece<br>
+ * Pieces are immutable, so there is only one of each type and color, 
+ * which every board shares. See <code>PieceImages</code> for drawing them.
  * @author Jed Wang
  */
 public abstract class AbstractPiece {
@@ -18,14 +14,55 @@ public abstract class AbstractPiece {
      */
     protected final boolean isRed;
     
+    /**
+     * The types of pieces.<br>
+     * A piece's code is its type, plus 8 if it is black.
+     */
+    public static final int GENERAL = 1, ADVISOR = 2, ELEPHANT = 3, HORSE = 4, 
+            CHARIOT = 5, CANNON = 6, PAWN = 7;
+    
+    /**
+     * What is added to a type to make the code of a black piece
+     */
+    public static final int BLACK_CODE = 8;
+    
     /**
      * Creates a new AbstractPiece
      * @param isRed whether or not the piece is red
      */
-    public AbstractPiece(boolean isRed) {
+    protected AbstractPiece(boolean isRed) {
         this.isRed = isRed;
     }
     
+    /**
+     * Returns the shared piece that a code represents
+     * @param code the code of a piece
+     * @return the piece, and if the code is 0, null
+     * @see #getCode() 
+     */
+    public static AbstractPiece fromCode(int code) {
+        boolean red = (code & BLACK_CODE) == 0;
+        switch(code & ~BLACK_CODE) {
+            case GENERAL:
+                return General.get(red);
+            case ADVISOR:
+                return Advisor.get(red);
+            case ELEPHANT:
+                return Elephant.get(red);
+            case HORSE:
+                return Horse.get(red);
+            case CHARIOT:
+                return Chariot.get(red);
+            case CANNON:
+                return Cannon.get(red);
+            case PAWN:
+                return Pawn.get(red);
+            default:
+                return null;
+        }
+    }
+
+    
     /**
      * Determines whether a move is legal
      * @param xb the current state of the xiangqi game
@@ -43,7 +80,65 @@ public abstract class AbstractPiece {
      * @param currentPosition the current place of the piece
      * @return all legal moves
      */
-    public abstract LinkedList<String> allLegalMoves(XiangqiBoard xb, String currentPosition);
+    public LinkedList<String> allLegalMoves(XiangqiBoard xb, String currentPosition) {
+        return allLegalMoves(xb, XiangqiBoard.toSquareIndex(currentPosition));
+    }
+    
+    /**
+     * Returns all of the legal moves this piece could make
+     * @param xb the current state of the xiangqi game
+     * @param square the square index of the piece
+     * @return all legal moves
+     */
+    public LinkedList<String> allLegalMoves(XiangqiBoard xb, int square) {
+        MoveList moves = new MoveList();
+        generateMoves(xb, square, moves);
+        return toSquares(moves);
+    }
+    
+    /**
+     * Adds all of the legal moves this piece could make to a list, 
+     * without checking for checks
+     * @param xb the current state of the xiangqi game
+     * @param square the square index of the piece
+     * @param moves the list to add the packed moves to
+     */
+    public abstract void generateMoves(XiangqiBoard xb, int square, MoveList moves);
+    
+    /**
+     * Adds a move of this piece to a list
+     * @param xb the current state of the xiangqi game
+     * @param from the square index of this piece
+     * @param to the square index to move to
+     * @param moves the list to add the packed move to
+     */
+    protected final void addMove(XiangqiBoard xb, int from, int to, MoveList moves) {
+        moves.add(Move.create(from, to, getCode(), xb.getPieceCode(to)));
+    }
+    
+    /**
+     * Adds a move of this piece to a list, if it captures an enemy piece
+     * @param xb the current state of the xiangqi game
+     * @param from the square index of this piece
+     * @param to the square index to move to
+     * @param moves the list to add the packed move to
+     */
+    protected final void addCapture(XiangqiBoard xb, int from, int to, MoveList moves) {
+        if(!xb.isEmptySquare(to) && (xb.getPiece(to).isRed ^ isRed)) addMove(xb, from, to, moves);
+    }
+    
+    /**
+     * Converts a list of packed moves to the squares they move to
+     * @param moves the packed moves
+     * @return the squares moved to
+     */
+    protected static LinkedList<String> toSquares(MoveList moves) {
+        LinkedList<String> output = new LinkedList<>();
+        for(int i = 0; i < moves.size(); i++) {
+            output.add(XiangqiBoard.toSquare(Move.getTo(moves.get(i))));
+        }
+        return output;
+    }
     
     /**
       * Determines whether a move is legal <br>
@@ -57,6 +152,20 @@ public abstract class AbstractPiece {
         return allLegalMoves(xb, fromWhere).contains(toWhere);
     }
     
+    /**
+      * Determines whether a move is legal <br>
+      * However, this method does not check for checks
+      * @param xb the current state of the xiangqi game
+      * @param fromWhere the square index of the piece
+      * @param toWhere to which square index the piece would be moved
+      * @return whether the move would be legal without checking for checks
+      */
+    public boolean isAllLegalMove(XiangqiBoard xb, int fromWhere, int toWhere) {
+        MoveList moves = new MoveList();
+        generateMoves(xb, fromWhere, moves);
+        return moves.contains(fromWhere, toWhere);
+    }
+    
     /**
      * Returns all of the legal moves this piece could make, taking into account check
      * @param xb the current state of the xiangqi game
@@ -64,115 +173,104 @@ public abstract class AbstractPiece {
      * @return the legal moves this piece can make
      */
     public LinkedList<String> legalMoves(XiangqiBoard xb, String currentPosition) {
-        LinkedList<String> allLegal = allLegalMoves(xb, currentPosition);
-        LinkedList<String> output = new LinkedList<>();
-        AbstractPiece[][] initLayout = new AbstractPiece[xb.getBoard().length][xb.getBoard()[0].length];
-        for(int i = 0; i < xb.getBoard().length; i++) {
-            for(int j = 0; j < xb.getBoard()[i].length; j++) {
-                initLayout[i][j] = xb.getBoard()[i][j];
-            }
-        }
-        for(String square:allLegal) {
-            xb.maybeMove(currentPosition, square);
-            if(!xb.inCheck(isRed)) output.add(square);
-            xb.setBoard(initLayout);
-            if(getCharRepresentation().equals("G")) xb.resetGeneralPos(isRed);
-        }
-        return output;
+        return legalMoves(xb, XiangqiBoard.toSquareIndex(currentPosition));
     }
     
     /**
-     * Returns all of the legal captures this piece could make
+     * Returns all of the legal moves this piece could make, taking into account check
      * @param xb the current state of the xiangqi game
-     * @param currentPosition the current place of the piece
-     * @return all legal captures
-     */
-    public abstract LinkedList<String> legalCaptures(XiangqiBoard xb, String currentPosition);
-    
-    /**
-     * The ghostifier
+     * @param square the square index of the piece
+     * @return the legal moves this piece can make
      */
-    private static RescaleOp rop;
+    public LinkedList<String> legalMoves(XiangqiBoard xb, int square) {
+        MoveList moves = new MoveList();
+        legalMoves(xb, square, moves);
+        return toSquares(moves);
+    }
     
     /**
-     * static init
+     * Adds all of the legal moves this piece could make to a list, taking into account check
+     * @param xb the current state of the xiangqi game
+     * @param square the square index of the piece
+     * @param moves the list to add the packed moves to
      */
-    static {
-        float[] scales = { 1f, 1f, 1f, 0.3f };
-        float[] offsets = new float[4];
-        rop = new RescaleOp(scales, offsets, null);
+    public void legalMoves(XiangqiBoard xb, int square, MoveList moves) {
+        int start = moves.size();
+        generateMoves(xb, square, moves);
+        removeIllegal(xb, moves, start);
     }
     
     /**
-     * init
+     * Removes the moves that leave this piece's General in check from the end of a list
+     * @param xb the current state of the xiangqi game
+     * @param moves the list of packed moves
+     * @param start the index of the first move to look at
      */
-    {
-        try {
-            black = ImageIO.read(getClass().getResource("/images/bk.gif"));
-            red = ImageIO.read(getClass().getResource("/images/rk.gif"));
-        } catch (IOException ex) {
-            ex.printStackTrace();
+    private void removeIllegal(XiangqiBoard xb, MoveList moves, int start) {
+        int kept = start;
+        for(int i = start; i < moves.size(); i++) {
+            int move = moves.get(i);
+            xb.makeMove(move);
+            if(!xb.inCheck(isRed)) moves.set(kept++, move);
+            xb.unmakeMove();
         }
+        moves.truncate(kept);
     }
     
     /**
-     * The images for the black and red pieces
+     * Returns all of the legal captures this piece could make
+     * @param xb the current state of the xiangqi game
+     * @param currentPosition the current place of the piece
+     * @return all legal captures
      */
-    private static BufferedImage black, red;
+    public LinkedList<String> legalCaptures(XiangqiBoard xb, String currentPosition) {
+        MoveList moves = new MoveList();
+        legalCaptures(xb, XiangqiBoard.toSquareIndex(currentPosition), moves);
+        return toSquares(moves);
+    }
     
     /**
-     * Draws this piece
-     * @param g2D the Graphics2D to draw on
-     * @param x the X coordinate of the image
-     * @param y the Y coordinate of the image
-     * @param width the width of the picture
-     * @param height the height of the picture
+     * Adds all of the legal captures this piece could make to a list, taking into account check
+     * @param xb the current state of the xiangqi game
+     * @param square the square index of the piece
+     * @param moves the list to add the packed moves to
      */
-    public void draw(Graphics2D g2D, int x, int y, int width, int height) {
-        if(isRed) {
-            g2D.drawImage(red, x, y, width, height, null);
-        } else {
-            g2D.drawImage(black, x, y, width, height, null);
-        }
+    public void legalCaptures(XiangqiBoard xb, int square, MoveList moves) {
+        int start = moves.size();
+        generateCaptures(xb, square, moves);
+        removeIllegal(xb, moves, start);
     }
     
     /**
-     * The images for the black and red ghosts
+     * Adds only the captures this piece could make to a list, 
+     * without checking for checks
+     * @param xb the current state of the xiangqi game
+     * @param square the square index of the piece
+     * @param moves the list to add the packed moves to
      */
-    private static BufferedImage blackGhost, redGhost;
+    public abstract void generateCaptures(XiangqiBoard xb, int square, MoveList moves);
     
     /**
-     * Turns the alpha of the image to 30%
-     * @param bi the BufferedImage to change
-     * @return the changed image
+     * Returns what this piece is worth on a square, including its material
+     * @param square the square index as seen from red's side; 
+     * a black piece's square has to be mirrored first
+     * @param endgame whether to score for the endgame instead of the midgame
+     * @return the worth of this piece
      */
-    public static BufferedImage ghostify(BufferedImage bi) {
-        return rop.filter(bi, null);
-    }
+    public abstract int getValue(int square, boolean endgame);
     
     /**
-     * Draws a ghost of this image
-     * @param g2D the Graphics2D to draw on
-     * @param x the X coordinate of the image
-     * @param y the Y coordinate of the image
-     * @param width the width of the picture
-     * @param height the height of the picture
+     * Returns the type of this piece, i.e. <code>GENERAL</code>
+     * @return the type of this piece
      */
-    public void drawGhost(Graphics2D g2D, int x, int y, int width, int height) {
-        if(isRed) {
-            g2D.drawImage(redGhost, x, y, width, height, null);
-        } else {
-            g2D.drawImage(blackGhost, x, y, width, height, null);
-        }
-    }
+    public abstract int getType();
     
     /**
-     * Gets this piece's image that is red or black
-     * @param isRed whether the image should be red or black
-     * @return the image that represents this piece
+     * Returns the code of this piece, which is used in packed moves
+     * @return the type of this piece, plus <code>BLACK_CODE</code> if it is black
      */
-    public static BufferedImage getImage(boolean isRed) {
-        return (isRed)?red:black;
+    public int getCode() {
+        return (isRed) ? getType() : getType() | BLACK_CODE;
     }
     
     /**
@@ -1,142 +1,111 @@
 package offlinexiangqi;
 
-import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.util.LinkedList;
-import javax.imageio.ImageIO;
-
 /**
  * A class that represents an Advisor
  * @author Jed Wang
  */
 public class Advisor extends AbstractPiece {
 
+    /**
+     * The red and black Advisors
+     */
+    public static final Advisor RED = new Advisor(true), BLACK = new Advisor(false);
+    
     /**
      * A constructor that creates a new Advisor
      * @param isRed whether the Advisor is red
      */
-    public Advisor(boolean isRed) {
+    private Advisor(boolean isRed) {
         super(isRed);
     }
+    
+    /**
+     * Returns the shared Advisor of a color
+     * @param isRed whether the Advisor is red
+     * @return the red or black Advisor
+     */
+    public static Advisor get(boolean isRed) {
+        return (isRed) ? RED : BLACK;
+    }
+
+    /**
+     * The column and row shifts of the four diagonals an Advisor can move along
+     */
+    private static final int[] COL_SHIFTS = {-1, 1, 1, -1}, 
+            ROW_SHIFTS = {-1, 1, -1, 1};
 
     @Override
-    public LinkedList<String> allLegalMoves(XiangqiBoard xb, String currentPosition) {
-        if(!XiangqiBoard.isValidSquare(currentPosition)) throw new IllegalArgumentException("Invalid square");
-        if(!(xb.getPiece(currentPosition).getCharRepresentation().equals("A"))) throw new IllegalArgumentException("This isn\'t an advisor!");
-        LinkedList<String> output = new LinkedList<>();
-        String shift;
-        if(XiangqiBoard.isValidShift(currentPosition, -1, -1)) {
-            shift = XiangqiBoard.shiftSquare(currentPosition, -1, -1);
-            if(XiangqiBoard.insideFortress(shift, isRed)) {
-                if(xb.isEmptySquare(shift))
-                    output.add(shift);
-                else if(xb.getPiece(shift).isRed ^ isRed)
-                    output.add(shift);
+    public void generateMoves(XiangqiBoard xb, int square, MoveList moves) {
+        if(!(xb.getPiece(square) instanceof Advisor)) throw new IllegalArgumentException("This isn\'t an advisor!");
+        for(int i = 0; i < 4; i++) {
+            int shift = XiangqiBoard.shift(square, COL_SHIFTS[i], ROW_SHIFTS[i]);
+            if(shift != XiangqiBoard.NO_SQUARE && XiangqiBoard.insideFortress(shift, isRed)) {
+                if(xb.isEmptySquare(shift) || (xb.getPiece(shift).isRed ^ isRed))
+                    addMove(xb, square, shift, moves);
             }
         }
-        if(XiangqiBoard.isValidShift(currentPosition, 1, 1)) {
-            shift = XiangqiBoard.shiftSquare(currentPosition, 1, 1);
-            if(XiangqiBoard.insideFortress(shift, isRed)) {
-                if(xb.isEmptySquare(shift))
-                    output.add(shift);
-                else if(xb.getPiece(shift).isRed ^ isRed)
-                    output.add(shift);
-            }
-        }
-        if(XiangqiBoard.isValidShift(currentPosition, 1, -1)) {
-            shift = XiangqiBoard.shiftSquare(currentPosition, 1, -1);
-            if(XiangqiBoard.insideFortress(shift, isRed)) {
-                if(xb.isEmptySquare(shift))
-                    output.add(shift);
-                else if(xb.getPiece(shift).isRed ^ isRed)
-                    output.add(shift);
-            }
-        }
-        if(XiangqiBoard.isValidShift(currentPosition, -1, 1)) {
-            shift = XiangqiBoard.shiftSquare(currentPosition, -1, 1);
-            if(XiangqiBoard.insideFortress(shift, isRed)) {
-                if(xb.isEmptySquare(shift))
-                    output.add(shift);
-                else if(xb.getPiece(shift).isRed ^ isRed)
-                    output.add(shift);
-            }
-        }
-        return output;
     }
 
     @Override
-    public LinkedList<String> legalCaptures(XiangqiBoard xb, String currentPosition) {
-        return allLegalMoves(xb, currentPosition);
+    public void generateCaptures(XiangqiBoard xb, int square, MoveList moves) {
+        if(!(xb.getPiece(square) instanceof Advisor)) throw new IllegalArgumentException("This isn\'t an advisor!");
+        for(int i = 0; i < 4; i++) {
+            int shift = XiangqiBoard.shift(square, COL_SHIFTS[i], ROW_SHIFTS[i]);
+            if(shift != XiangqiBoard.NO_SQUARE && XiangqiBoard.insideFortress(shift, isRed))
+                addCapture(xb, square, shift, moves);
+        }
     }
 
-    @Override
-    public String getCharRepresentation() {
-        return "A";
-    }
-    
     /**
-     * init
+     * What an advisor is worth in the midgame and in the endgame
      */
-    {
-        try {
-            black = ImageIO.read(getClass().getResource("/images/ba.gif"));
-            red = ImageIO.read(getClass().getResource("/images/ra.gif"));
-        } catch (IOException ex) {
-            ex.printStackTrace();
-        }
-    }
-    
+    private static final int MIDGAME_VALUE = 200, ENDGAME_VALUE = 180;
+
     /**
-     * The images for the black and red pieces
+     * Advisors guard best from the center of the fortress, from red's side
      */
-    private static BufferedImage black, red;
-    
+    private static final int[] MIDGAME_TABLE = {
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,  -2,   0,  -2,   0,   0,   0,
+              0,   0,   0,   0,   4,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0
+    };
+
     /**
-     * Draws this piece
-     * @param g2D the Graphics2D to draw on
-     * @param x the X coordinate of the image
-     * @param y the Y coordinate of the image
-     * @param width the width of the picture
-     * @param height the height of the picture
+     * With less material left, an advisor in the center of the fortress matters
+     * more, and one on a front corner leaves the general open, from red's side
      */
+    private static final int[] ENDGAME_TABLE = {
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,  -6,   0,  -6,   0,   0,   0,
+              0,   0,   0,   0,   8,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0
+    };
+
     @Override
-    public void draw(Graphics2D g2D, int x, int y, int width, int height) {
-        if(isRed) {
-            g2D.drawImage(red, x, y, width, height, null);
-        } else {
-            g2D.drawImage(black, x, y, width, height, null);
-        }
+    public int getValue(int square, boolean endgame) {
+        return (endgame) ? ENDGAME_VALUE + ENDGAME_TABLE[square] : MIDGAME_VALUE + MIDGAME_TABLE[square];
     }
-    
-    /**
-     * The images for the black and red ghosts
-     */
-    private static BufferedImage blackGhost, redGhost;
-    
-    /**
-     * Draws a ghost of this image
-     * @param g2D the Graphics2D to draw on
-     * @param x the X coordinate of the image
-     * @param y the Y coordinate of the image
-     * @param width the width of the picture
-     * @param height the height of the picture
-     */
+
     @Override
-    public void drawGhost(Graphics2D g2D, int x, int y, int width, int height) {
-        if(isRed) {
-            g2D.drawImage(redGhost, x, y, width, height, null);
-        } else {
-            g2D.drawImage(blackGhost, x, y, width, height, null);
-        }
+    public int getType() {
+        return ADVISOR;
     }
-    
-    /**
-     * Gets this piece's image that is red or black
-     * @param isRed whether the image should be red or black
-     * @return the image that represents this piece
-     */
-    public static BufferedImage getImage(boolean isRed) {
-        return (isRed)?red:black;
+
+    @Override
+    public String getCharRepresentation() {
+        return "A";
     }
 }
\ No newline at end of file
@@ -0,0 +1,245 @@
+package offlinexiangqi;
+
+/**
+ * Precomputed attack tables for <code>BitboardPosition</code><br>
+ * <br>
+ * A set of squares is stored as two longs: the low half holds square
+ * indices 0-62 (rows 0-6) and the high half holds 63-89 (rows 7-9) as
+ * bits 0-26, so that no rank ever straddles the two halves.<br>
+ * Rank and file occupancies are 9 and 10 bit ints, indexed by column and row.
+ * @author Jed Wang
+ */
+public final class AttackTables {
+    /**
+     * The first square index stored in the high half
+     */
+    public static final int HIGH_START = 63;
+    
+    /**
+     * The squares a chariot reaches along a rank or file, including the first blocker
+     * [column][rank occupancy] and [row][file occupancy]
+     */
+    static final int[][] RANK_SLIDES = new int[9][1 << 9],
+            FILE_SLIDES = new int[10][1 << 10];
+    
+    /**
+     * The squares a cannon captures on along a rank or file
+     * [column][rank occupancy] and [row][file occupancy]
+     */
+    static final int[][] RANK_CANNON = new int[9][1 << 9],
+            FILE_CANNON = new int[10][1 << 10];
+    
+    /**
+     * Spreads a file mask into the low and high halves
+     * [column][file mask]
+     */
+    static final long[][] FILE_LOW = new long[9][1 << 10],
+            FILE_HIGH = new long[9][1 << 10];
+    
+    /**
+     * The squares a horse moves to, indexed by which of its legs are blocked
+     * [square][leg occupancy]
+     */
+    static final long[][] HORSE_LOW = new long[90][16], HORSE_HIGH = new long[90][16];
+    
+    /**
+     * The squares a horse attacks a square from, indexed by which of the
+     * square's diagonal neighbors are occupied
+     * [square][diagonal occupancy]
+     */
+    static final long[][] HORSE_ATTACKER_LOW = new long[90][16],
+            HORSE_ATTACKER_HIGH = new long[90][16];
+    
+    /**
+     * The squares an elephant moves to, indexed by which of its eyes are blocked
+     * [square][diagonal occupancy]
+     */
+    static final long[][] ELEPHANT_LOW = new long[90][16], ELEPHANT_HIGH = new long[90][16];
+    
+    /**
+     * The squares an advisor or general moves to inside the fortress
+     * [square]
+     */
+    static final long[] ADVISOR_LOW = new long[90], ADVISOR_HIGH = new long[90],
+            GENERAL_LOW = new long[90], GENERAL_HIGH = new long[90];
+    
+    /**
+     * The squares a pawn moves to, and the squares a pawn attacks a square from
+     * [0 for red, 1 for black][square]
+     */
+    static final long[][] PAWN_LOW = new long[2][90], PAWN_HIGH = new long[2][90],
+            PAWN_ATTACKER_LOW = new long[2][90], PAWN_ATTACKER_HIGH = new long[2][90];
+    
+    /**
+     * The column and row shifts of the four lines and four diagonals through a square.<br>
+     * The order matches the bits of the leg and diagonal occupancies.
+     */
+    static final int[] LINE_COL_SHIFTS = {1, -1, 0, 0}, LINE_ROW_SHIFTS = {0, 0, 1, -1},
+            DIAGONAL_COL_SHIFTS = {1, 1, -1, -1}, DIAGONAL_ROW_SHIFTS = {1, -1, 1, -1};
+    
+    /**
+     * static init
+     */
+    static {
+        initSliders(RANK_SLIDES, RANK_CANNON, 9);
+        initSliders(FILE_SLIDES, FILE_CANNON, 10);
+        for(int col = 0; col < 9; col++) {
+            for(int mask = 0; mask < (1 << 10); mask++) {
+                for(int row = 0; row < 10; row++) {
+                    if((mask & (1 << row)) == 0) continue;
+                    int square = XiangqiBoard.toSquareIndex(col, row);
+                    FILE_LOW[col][mask] |= low(square);
+                    FILE_HIGH[col][mask] |= high(square);
+                }
+            }
+        }
+        for(int square = 0; square < XiangqiBoard.BOARD_SIZE; square++) {
+            initSquare(square);
+        }
+    }
+    
+    /**
+     * No instances
+     */
+    private AttackTables() {
+    }
+    
+    /**
+     * Fills the slider tables of a rank or file
+     * @param slides the chariot table
+     * @param cannon the cannon table
+     * @param length how many squares the rank or file has
+     */
+    private static void initSliders(int[][] slides, int[][] cannon, int length) {
+        for(int from = 0; from < length; from++) {
+            for(int occupancy = 0; occupancy < (1 << length); occupancy++) {
+                for(int step = -1; step <= 1; step += 2) {
+                    int temp = from + step;
+                    while(temp >= 0 && temp < length && (occupancy & (1 << temp)) == 0) {
+                        slides[from][occupancy] |= 1 << temp;
+                        temp += step;
+                    }
+                    if(temp < 0 || temp >= length) continue;
+                    slides[from][occupancy] |= 1 << temp;
+                    // jump over the screen
+                    temp += step;
+                    while(temp >= 0 && temp < length && (occupancy & (1 << temp)) == 0)
+                        temp += step;
+                    if(temp >= 0 && temp < length) cannon[from][occupancy] |= 1 << temp;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Fills the leaper tables of a square
+     * @param square the square index
+     */
+    private static void initSquare(int square) {
+        for(int legs = 0; legs < 16; legs++) {
+            for(int i = 0; i < 4; i++) {
+                // horse moves past each unblocked leg
+                int leg = XiangqiBoard.shift(square, LINE_COL_SHIFTS[i], LINE_ROW_SHIFTS[i]);
+                if(leg != XiangqiBoard.NO_SQUARE && (legs & (1 << i)) == 0) {
+                    for(int side = -1; side <= 1; side += 2) {
+                        int target = XiangqiBoard.shift(leg,
+                                LINE_COL_SHIFTS[i] + ((LINE_COL_SHIFTS[i] == 0) ? side : 0),
+                                LINE_ROW_SHIFTS[i] + ((LINE_ROW_SHIFTS[i] == 0) ? side : 0));
+                        if(target == XiangqiBoard.NO_SQUARE) continue;
+                        HORSE_LOW[square][legs] |= low(target);
+                        HORSE_HIGH[square][legs] |= high(target);
+                    }
+                }
+                
+                // diagonals: horse attackers and elephant moves past each empty neighbor
+                int eye = XiangqiBoard.shift(square, DIAGONAL_COL_SHIFTS[i], DIAGONAL_ROW_SHIFTS[i]);
+                if(eye == XiangqiBoard.NO_SQUARE || (legs & (1 << i)) != 0) continue;
+                int[][] attackers = {
+                    {DIAGONAL_COL_SHIFTS[i], 0}, {0, DIAGONAL_ROW_SHIFTS[i]}
+                };
+                for(int[] extra : attackers) {
+                    int attacker = XiangqiBoard.shift(eye, extra[0], extra[1]);
+                    if(attacker == XiangqiBoard.NO_SQUARE) continue;
+                    HORSE_ATTACKER_LOW[square][legs] |= low(attacker);
+                    HORSE_ATTACKER_HIGH[square][legs] |= high(attacker);
+                }
+                int target = XiangqiBoard.shift(eye, DIAGONAL_COL_SHIFTS[i], DIAGONAL_ROW_SHIFTS[i]);
+                if(target != XiangqiBoard.NO_SQUARE &&
+                        (XiangqiBoard.getRow(target) <= 4) == (XiangqiBoard.getRow(square) <= 4)) {
+                    ELEPHANT_LOW[square][legs] |= low(target);
+                    ELEPHANT_HIGH[square][legs] |= high(target);
+                }
+            }
+        }
+        
+        for(int i = 0; i < 4; i++) {
+            for(int isRed = 0; isRed < 2; isRed++) {
+                boolean red = isRed == 0;
+                if(!XiangqiBoard.insideFortress(square, red)) continue;
+                int target = XiangqiBoard.shift(square, DIAGONAL_COL_SHIFTS[i], DIAGONAL_ROW_SHIFTS[i]);
+                if(target != XiangqiBoard.NO_SQUARE && XiangqiBoard.insideFortress(target, red)) {
+                    ADVISOR_LOW[square] |= low(target);
+                    ADVISOR_HIGH[square] |= high(target);
+                }
+                target = XiangqiBoard.shift(square, LINE_COL_SHIFTS[i], LINE_ROW_SHIFTS[i]);
+                if(target != XiangqiBoard.NO_SQUARE && XiangqiBoard.insideFortress(target, red)) {
+                    GENERAL_LOW[square] |= low(target);
+                    GENERAL_HIGH[square] |= high(target);
+                }
+            }
+        }
+        
+        for(int color = 0; color < 2; color++) {
+            boolean red = color == 0;
+            int forward = (red) ? -1 : 1;
+            int[][] shifts = {{0, forward}, {1, 0}, {-1, 0}};
+            for(int i = 0; i < shifts.length; i++) {
+                if(i > 0 && XiangqiBoard.behindRiver(square, red)) break;
+                int target = XiangqiBoard.shift(square, shifts[i][0], shifts[i][1]);
+                if(target == XiangqiBoard.NO_SQUARE) continue;
+                PAWN_LOW[color][square] |= low(target);
+                PAWN_HIGH[color][square] |= high(target);
+                PAWN_ATTACKER_LOW[color][target] |= low(square);
+                PAWN_ATTACKER_HIGH[color][target] |= high(square);
+            }
+        }
+    }
+    
+    /**
+     * Returns the low half of the set holding only one square
+     * @param square the square index
+     * @return the low half
+     */
+    public static long low(int square) {
+        return (square < HIGH_START) ? 1L << square : 0;
+    }
+    
+    /**
+     * Returns the high half of the set holding only one square
+     * @param square the square index
+     * @return the high half
+     */
+    public static long high(int square) {
+        return (square < HIGH_START) ? 0 : 1L << (square - HIGH_START);
+    }
+    
+    /**
+     * Moves a rank mask into the low half
+     * @param row the row of the rank
+     * @param mask the 9-bit rank mask
+     * @return the low half
+     */
+    static long rankLow(int row, int mask) {
+        return (row < 7) ? (long) mask << (row * 9) : 0;
+    }
+    
+    /**
+     * Moves a rank mask into the high half
+     * @param row the row of the rank
+     * @param mask the 9-bit rank mask
+     * @return the high half
+     */
+    static long rankHigh(int row, int mask) {
+        return (row < 7) ? 0 : (long) mask << ((row - 7) * 9);
+    }
+}
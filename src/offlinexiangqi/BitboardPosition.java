@@ -0,0 +1,411 @@
+package offlinexiangqi;
+
+import java.util.Arrays;
+
+/**
+ * A position stored as bitboards, for the engine<br>
+ * <br>
+ * Every piece code has its own set of squares, split into a low and a high
+ * half (see <code>AttackTables</code>). Rank and file occupancies are kept
+ * alongside so that chariot and cannon moves are single table lookups.
+ * @author Jed Wang
+ */
+public class BitboardPosition {
+    /**
+     * The squares of every piece code, and of every color at
+     * <code>RED_PIECES</code> and <code>BLACK_PIECES</code>
+     */
+    private final long[] low, high;
+    
+    /**
+     * Where the squares of all red and all black pieces are stored
+     */
+    private static final int RED_PIECES = 0, BLACK_PIECES = AbstractPiece.BLACK_CODE;
+    
+    /**
+     * The occupancy of every rank [row] and file [column]
+     */
+    private final int[] rankOccupancy, fileOccupancy;
+    
+    /**
+     * The code of the piece on every square index, 0 if none
+     */
+    private final int[] pieces;
+    
+    /**
+     * Whether red is to move
+     */
+    private boolean redToMove;
+    
+    /**
+     * The moves made, for <code>unmakeMove</code>
+     */
+    private int[] undoMoves;
+    
+    /**
+     * How many moves are on the undo stack
+     */
+    private int undoSize;
+    
+    /**
+     * Creates a BitboardPosition from the current state of a XiangqiBoard
+     * @param xb the XiangqiBoard to copy
+     */
+    public BitboardPosition(XiangqiBoard xb) {
+        low = new long[16];
+        high = new long[16];
+        rankOccupancy = new int[10];
+        fileOccupancy = new int[9];
+        pieces = new int[XiangqiBoard.BOARD_SIZE];
+        undoMoves = new int[256];
+        undoSize = 0;
+        for(int square = 0; square < XiangqiBoard.BOARD_SIZE; square++) {
+            int code = xb.getPieceCode(square);
+            if(code != 0) put(square, code);
+        }
+        redToMove = xb.isRedToMove();
+    }
+    
+    /**
+     * Constructor from a previous BitboardPosition
+     * @param bp the BitboardPosition to duplicate
+     */
+    public BitboardPosition(BitboardPosition bp) {
+        low = bp.low.clone();
+        high = bp.high.clone();
+        rankOccupancy = bp.rankOccupancy.clone();
+        fileOccupancy = bp.fileOccupancy.clone();
+        pieces = bp.pieces.clone();
+        undoMoves = bp.undoMoves.clone();
+        undoSize = bp.undoSize;
+        redToMove = bp.redToMove;
+    }
+    
+    /**
+     * Places a piece on an empty square
+     * @param square the square index
+     * @param code the code of the piece
+     */
+    private void put(int square, int code) {
+        long l = AttackTables.low(square), h = AttackTables.high(square);
+        int color = code & BLACK_PIECES;
+        low[code] ^= l;
+        high[code] ^= h;
+        low[color] ^= l;
+        high[color] ^= h;
+        rankOccupancy[XiangqiBoard.getRow(square)] ^= 1 << XiangqiBoard.getColumn(square);
+        fileOccupancy[XiangqiBoard.getColumn(square)] ^= 1 << XiangqiBoard.getRow(square);
+        pieces[square] = code;
+    }
+    
+    /**
+     * Removes a piece from a square
+     * @param square the square index
+     * @param code the code of the piece on the square
+     */
+    private void remove(int square, int code) {
+        put(square, code);
+        pieces[square] = 0;
+    }
+    
+    /**
+     * Makes a move in place and passes the turn to the other side
+     * @param move a packed move
+     */
+    public void makeMove(int move) {
+        int from = Move.getFrom(move), to = Move.getTo(move),
+                moved = Move.getMoved(move), captured = Move.getCaptured(move);
+        if(undoSize == undoMoves.length) undoMoves = Arrays.copyOf(undoMoves, undoSize * 2);
+        undoMoves[undoSize++] = move;
+        if(captured != 0) remove(to, captured);
+        remove(from, moved);
+        put(to, moved);
+        redToMove = !redToMove;
+    }
+    
+    /**
+     * Takes back the last move made by <code>makeMove</code>
+     */
+    public void unmakeMove() {
+        int move = undoMoves[--undoSize];
+        int from = Move.getFrom(move), to = Move.getTo(move),
+                moved = Move.getMoved(move), captured = Move.getCaptured(move);
+        remove(to, moved);
+        put(from, moved);
+        if(captured != 0) put(to, captured);
+        redToMove = !redToMove;
+    }
+    
+    /**
+     * Determines whether red is to move
+     * @return whether red is to move
+     */
+    public boolean isRedToMove() {
+        return redToMove;
+    }
+    
+    /**
+     * Determines the code of the piece on a square index
+     * @param square a square index
+     * @return the code of the piece, and if none, 0
+     */
+    public int getPieceCode(int square) {
+        return pieces[square];
+    }
+    
+    /**
+     * Determines which of the four line neighbors of a square are occupied
+     * @param square the square index
+     * @return the leg occupancy, see <code>AttackTables.LINE_COL_SHIFTS</code>
+     */
+    private int legOccupancy(int square) {
+        int col = XiangqiBoard.getColumn(square), row = XiangqiBoard.getRow(square), legs = 0;
+        if(col < 8 && pieces[square + 1] != 0) legs |= 1;
+        if(col > 0 && pieces[square - 1] != 0) legs |= 2;
+        if(row < 9 && pieces[square + 9] != 0) legs |= 4;
+        if(row > 0 && pieces[square - 9] != 0) legs |= 8;
+        return legs;
+    }
+    
+    /**
+     * Determines which of the four diagonal neighbors of a square are occupied
+     * @param square the square index
+     * @return the diagonal occupancy, see <code>AttackTables.DIAGONAL_COL_SHIFTS</code>
+     */
+    private int diagonalOccupancy(int square) {
+        int col = XiangqiBoard.getColumn(square), row = XiangqiBoard.getRow(square), eyes = 0;
+        if(col < 8 && row < 9 && pieces[square + 10] != 0) eyes |= 1;
+        if(col < 8 && row > 0 && pieces[square - 8] != 0) eyes |= 2;
+        if(col > 0 && row < 9 && pieces[square + 8] != 0) eyes |= 4;
+        if(col > 0 && row > 0 && pieces[square - 10] != 0) eyes |= 8;
+        return eyes;
+    }
+    
+    /**
+     * Adds all of the moves of the side to move to a list, without checking for checks
+     * @param moves the list to add the packed moves to
+     */
+    public void generateMoves(MoveList moves) {
+        int color = (redToMove) ? RED_PIECES : BLACK_PIECES;
+        for(int type = AbstractPiece.GENERAL; type <= AbstractPiece.PAWN; type++) {
+            int code = type | color;
+            long l = low[code], h = high[code];
+            while(l != 0) {
+                int square = Long.numberOfTrailingZeros(l);
+                l &= l - 1;
+                generateMoves(square, code, moves);
+            }
+            while(h != 0) {
+                int square = Long.numberOfTrailingZeros(h) + AttackTables.HIGH_START;
+                h &= h - 1;
+                generateMoves(square, code, moves);
+            }
+        }
+    }
+    
+    /**
+     * Adds all of the legal moves of the side to move to a list
+     * @param moves the list to add the packed moves to
+     */
+    public void generateLegalMoves(MoveList moves) {
+        int start = moves.size(), kept = start;
+        generateMoves(moves);
+        boolean isRed = redToMove;
+        for(int i = start; i < moves.size(); i++) {
+            int move = moves.get(i);
+            makeMove(move);
+            if(!inCheck(isRed)) moves.set(kept++, move);
+            unmakeMove();
+        }
+        moves.truncate(kept);
+    }
+    
+    /**
+     * Adds the moves of one piece to a list
+     * @param square the square index of the piece
+     * @param code the code of the piece
+     * @param moves the list to add the packed moves to
+     */
+    private void generateMoves(int square, int code, MoveList moves) {
+        int own = code & BLACK_PIECES, enemy = own ^ BLACK_PIECES;
+        long l = targetsLow(square, code), h = targetsHigh(square, code);
+        if((code & ~BLACK_PIECES) == AbstractPiece.CANNON) {
+            l &= ~(low[RED_PIECES] | low[BLACK_PIECES]);
+            h &= ~(high[RED_PIECES] | high[BLACK_PIECES]);
+            int row = XiangqiBoard.getRow(square), col = XiangqiBoard.getColumn(square);
+            int rank = AttackTables.RANK_CANNON[col][rankOccupancy[row]],
+                    file = AttackTables.FILE_CANNON[row][fileOccupancy[col]];
+            l |= (AttackTables.rankLow(row, rank) | AttackTables.FILE_LOW[col][file]) & low[enemy];
+            h |= (AttackTables.rankHigh(row, rank) | AttackTables.FILE_HIGH[col][file]) & high[enemy];
+        } else {
+            l &= ~low[own];
+            h &= ~high[own];
+        }
+        while(l != 0) {
+            int to = Long.numberOfTrailingZeros(l);
+            l &= l - 1;
+            moves.add(Move.create(square, to, code, pieces[to]));
+        }
+        while(h != 0) {
+            int to = Long.numberOfTrailingZeros(h) + AttackTables.HIGH_START;
+            h &= h - 1;
+            moves.add(Move.create(square, to, code, pieces[to]));
+        }
+        if((code & ~BLACK_PIECES) == AbstractPiece.GENERAL) {
+            // generals facing each other
+            int col = XiangqiBoard.getColumn(square), row = XiangqiBoard.getRow(square);
+            int file = AttackTables.FILE_SLIDES[row][fileOccupancy[col]];
+            long other = (AttackTables.FILE_LOW[col][file] & low[AbstractPiece.GENERAL | enemy])
+                    | (AttackTables.FILE_HIGH[col][file] & high[AbstractPiece.GENERAL | enemy]);
+            if(other != 0) {
+                int to = (low[AbstractPiece.GENERAL | enemy] != 0)
+                        ? Long.numberOfTrailingZeros(low[AbstractPiece.GENERAL | enemy])
+                        : Long.numberOfTrailingZeros(high[AbstractPiece.GENERAL | enemy]) + AttackTables.HIGH_START;
+                moves.add(Move.create(square, to, code, pieces[to]));
+            }
+        }
+    }
+    
+    /**
+     * Returns the low half of the squares a piece moves to, ignoring which pieces are there
+     * @param square the square index of the piece
+     * @param code the code of the piece
+     * @return the low half
+     */
+    private long targetsLow(int square, int code) {
+        int row = XiangqiBoard.getRow(square), col = XiangqiBoard.getColumn(square);
+        switch(code & ~BLACK_PIECES) {
+            case AbstractPiece.GENERAL:
+                return AttackTables.GENERAL_LOW[square];
+            case AbstractPiece.ADVISOR:
+                return AttackTables.ADVISOR_LOW[square];
+            case AbstractPiece.ELEPHANT:
+                return AttackTables.ELEPHANT_LOW[square][diagonalOccupancy(square)];
+            case AbstractPiece.HORSE:
+                return AttackTables.HORSE_LOW[square][legOccupancy(square)];
+            case AbstractPiece.CHARIOT:
+            case AbstractPiece.CANNON:
+                return AttackTables.rankLow(row, AttackTables.RANK_SLIDES[col][rankOccupancy[row]])
+                        | AttackTables.FILE_LOW[col][AttackTables.FILE_SLIDES[row][fileOccupancy[col]]];
+            default:
+                return AttackTables.PAWN_LOW[(code & BLACK_PIECES) >> 3][square];
+        }
+    }
+    
+    /**
+     * Returns the high half of the squares a piece moves to, ignoring which pieces are there
+     * @param square the square index of the piece
+     * @param code the code of the piece
+     * @return the high half
+     */
+    private long targetsHigh(int square, int code) {
+        int row = XiangqiBoard.getRow(square), col = XiangqiBoard.getColumn(square);
+        switch(code & ~BLACK_PIECES) {
+            case AbstractPiece.GENERAL:
+                return AttackTables.GENERAL_HIGH[square];
+            case AbstractPiece.ADVISOR:
+                return AttackTables.ADVISOR_HIGH[square];
+            case AbstractPiece.ELEPHANT:
+                return AttackTables.ELEPHANT_HIGH[square][diagonalOccupancy(square)];
+            case AbstractPiece.HORSE:
+                return AttackTables.HORSE_HIGH[square][legOccupancy(square)];
+            case AbstractPiece.CHARIOT:
+            case AbstractPiece.CANNON:
+                return AttackTables.rankHigh(row, AttackTables.RANK_SLIDES[col][rankOccupancy[row]])
+                        | AttackTables.FILE_HIGH[col][AttackTables.FILE_SLIDES[row][fileOccupancy[col]]];
+            default:
+                return AttackTables.PAWN_HIGH[(code & BLACK_PIECES) >> 3][square];
+        }
+    }
+    
+    /**
+     * Determines whether one side's general is in check
+     * @param isRed whether the side to check is red
+     * @return whether the side is in check
+     */
+    public boolean inCheck(boolean isRed) {
+        int general = AbstractPiece.GENERAL | ((isRed) ? RED_PIECES : BLACK_PIECES);
+        int square = (low[general] != 0)
+                ? Long.numberOfTrailingZeros(low[general])
+                : Long.numberOfTrailingZeros(high[general]) + AttackTables.HIGH_START;
+        return isSquareAttacked(square, !isRed);
+    }
+    
+    /**
+     * Determines whether a side attacks a square.<br>
+     * Generals only attack along a file if the square holds the other general.
+     * @param square the square index
+     * @param byRed whether the attacking side is red
+     * @return whether the square is attacked
+     */
+    public boolean isSquareAttacked(int square, boolean byRed) {
+        int color = (byRed) ? RED_PIECES : BLACK_PIECES;
+        int row = XiangqiBoard.getRow(square), col = XiangqiBoard.getColumn(square);
+        int rankSlides = AttackTables.RANK_SLIDES[col][rankOccupancy[row]],
+                fileSlides = AttackTables.FILE_SLIDES[row][fileOccupancy[col]];
+        int diagonals = diagonalOccupancy(square);
+        
+        long chariots = AttackTables.rankLow(row, rankSlides) | AttackTables.FILE_LOW[col][fileSlides];
+        long chariotsHigh = AttackTables.rankHigh(row, rankSlides) | AttackTables.FILE_HIGH[col][fileSlides];
+        if(((chariots & low[AbstractPiece.CHARIOT | color])
+                | (chariotsHigh & high[AbstractPiece.CHARIOT | color])) != 0) return true;
+        if((pieces[square] & ~BLACK_PIECES) == AbstractPiece.GENERAL) {
+            long file = AttackTables.FILE_LOW[col][fileSlides], fileHigh = AttackTables.FILE_HIGH[col][fileSlides];
+            if(((file & low[AbstractPiece.GENERAL | color])
+                    | (fileHigh & high[AbstractPiece.GENERAL | color])) != 0) return true;
+        }
+        
+        int rankCannon = AttackTables.RANK_CANNON[col][rankOccupancy[row]],
+                fileCannon = AttackTables.FILE_CANNON[row][fileOccupancy[col]];
+        if((((AttackTables.rankLow(row, rankCannon) | AttackTables.FILE_LOW[col][fileCannon])
+                & low[AbstractPiece.CANNON | color])
+                | ((AttackTables.rankHigh(row, rankCannon) | AttackTables.FILE_HIGH[col][fileCannon])
+                & high[AbstractPiece.CANNON | color])) != 0) return true;
+        
+        return ((AttackTables.HORSE_ATTACKER_LOW[square][diagonals] & low[AbstractPiece.HORSE | color])
+                | (AttackTables.HORSE_ATTACKER_HIGH[square][diagonals] & high[AbstractPiece.HORSE | color])
+                | (AttackTables.PAWN_ATTACKER_LOW[color >> 3][square] & low[AbstractPiece.PAWN | color])
+                | (AttackTables.PAWN_ATTACKER_HIGH[color >> 3][square] & high[AbstractPiece.PAWN | color])
+                | (AttackTables.ELEPHANT_LOW[square][diagonals] & low[AbstractPiece.ELEPHANT | color])
+                | (AttackTables.ELEPHANT_HIGH[square][diagonals] & high[AbstractPiece.ELEPHANT | color])
+                | (AttackTables.ADVISOR_LOW[square] & low[AbstractPiece.ADVISOR | color])
+                | (AttackTables.ADVISOR_HIGH[square] & high[AbstractPiece.ADVISOR | color])
+                | (AttackTables.GENERAL_LOW[square] & low[AbstractPiece.GENERAL | color])
+                | (AttackTables.GENERAL_HIGH[square] & high[AbstractPiece.GENERAL | color])) != 0;
+    }
+    
+    /**
+     * Counts how many squares one side's pieces can move to, without checking for checks
+     * @param isRed whether the side is red
+     * @return the mobility of the side
+     */
+    public int mobility(boolean isRed) {
+        int color = (isRed) ? RED_PIECES : BLACK_PIECES, count = 0;
+        for(int type = AbstractPiece.GENERAL; type <= AbstractPiece.PAWN; type++) {
+            int code = type | color;
+            long l = low[code], h = high[code];
+            while(l != 0) {
+                int square = Long.numberOfTrailingZeros(l);
+                l &= l - 1;
+                count += Long.bitCount(targetsLow(square, code) & ~low[color])
+                        + Long.bitCount(targetsHigh(square, code) & ~high[color]);
+            }
+            while(h != 0) {
+                int square = Long.numberOfTrailingZeros(h) + AttackTables.HIGH_START;
+                h &= h - 1;
+                count += Long.bitCount(targetsLow(square, code) & ~low[color])
+                        + Long.bitCount(targetsHigh(square, code) & ~high[color]);
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Counts how many pieces of a code are on the board
+     * @param code the code of the piece
+     * @return how many of those pieces there are
+     */
+    public int count(int code) {
+        return Long.bitCount(low[code]) + Long.bitCount(high[code]);
+    }
+}
@@ -1,223 +1,130 @@
 package offlinexiangqi;
 
-import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.util.LinkedList;
-import javax.imageio.ImageIO;
-
 /**
  * A class that represents a Cannon
  * @author Jed Wang
  */
 public class Cannon extends AbstractPiece {
 
+    /**
+     * The red and black Cannons
+     */
+    public static final Cannon RED = new Cannon(true), BLACK = new Cannon(false);
+    
     /**
      * A constructor that creates a new Cannon
      * @param isRed whether this Cannon is red
      */
-    public Cannon(boolean isRed) {
+    private Cannon(boolean isRed) {
         super(isRed);
     }
+    
+    /**
+     * Returns the shared Cannon of a color
+     * @param isRed whether the Cannon is red
+     * @return the red or black Cannon
+     */
+    public static Cannon get(boolean isRed) {
+        return (isRed) ? RED : BLACK;
+    }
+
+    /**
+     * The column and row shifts of the four directions a Cannon can slide
+     */
+    private static final int[] COL_SHIFTS = {1, -1, 0, 0}, 
+            ROW_SHIFTS = {0, 0, 1, -1};
 
     @Override
-    public LinkedList<String> allLegalMoves(XiangqiBoard xb, String currentPosition) {
-        if(!XiangqiBoard.isValidSquare(currentPosition)) throw new IllegalArgumentException("Invalid square");
-        if(!(xb.getPiece(currentPosition).getCharRepresentation().equals("C"))) throw new IllegalArgumentException("This isn\'t a cannon!");
-        LinkedList<String> output = new LinkedList<>();
-        String temp;
-        if(XiangqiBoard.isValidShift(currentPosition, 1, 0)) {
-            temp = XiangqiBoard.shiftSquare(currentPosition, 1, 0);
-            while(xb.isEmptySquare(temp)) {
-                output.add(temp);
-                try {
-                    temp = XiangqiBoard.shiftSquare(temp, 1, 0);
-                } catch(IllegalArgumentException iae) {
-                    break;
-                }
-            }
-            if(XiangqiBoard.isValidSquare(temp) && !xb.isEmptySquare(temp)) {
-                if(xb.getPiece(temp).isRed ^ isRed) {
-                    output.add(temp);
-                }
+    public void generateMoves(XiangqiBoard xb, int square, MoveList moves) {
+        if(!(xb.getPiece(square) instanceof Cannon)) throw new IllegalArgumentException("This isn\'t a cannon!");
+        for(int i = 0; i < 4; i++) {
+            int temp = XiangqiBoard.shift(square, COL_SHIFTS[i], ROW_SHIFTS[i]);
+            while(temp != XiangqiBoard.NO_SQUARE && xb.isEmptySquare(temp)) {
+                addMove(xb, square, temp, moves);
+                temp = XiangqiBoard.shift(temp, COL_SHIFTS[i], ROW_SHIFTS[i]);
             }
-        }
-        if(XiangqiBoard.isValidShift(currentPosition, -1, 0)) {
-            temp = XiangqiBoard.shiftSquare(currentPosition, -1, 0);
-            while(xb.isEmptySquare(temp)) {
-                output.add(temp);
-                try {
-                    temp = XiangqiBoard.shiftSquare(temp, -1, 0);
-                } catch(IllegalArgumentException iae) {
-                    break;
-                }
+            if(temp == XiangqiBoard.NO_SQUARE) continue;
+            // jump over the screen
+            temp = XiangqiBoard.shift(temp, COL_SHIFTS[i], ROW_SHIFTS[i]);
+            while(temp != XiangqiBoard.NO_SQUARE && xb.isEmptySquare(temp)) {
+                temp = XiangqiBoard.shift(temp, COL_SHIFTS[i], ROW_SHIFTS[i]);
             }
-            if(XiangqiBoard.isValidSquare(temp) && !xb.isEmptySquare(temp)) {
-                if(xb.getPiece(temp).isRed ^ isRed) {
-                    output.add(temp);
-                }
+            if(temp != XiangqiBoard.NO_SQUARE && (xb.getPiece(temp).isRed ^ isRed)) {
+                addMove(xb, square, temp, moves);
             }
         }
-        if(isRed) {
-            if(XiangqiBoard.isValidShift(currentPosition, 0, 1)) {
-                temp = XiangqiBoard.shiftSquare(currentPosition, 0, 1);
-                while(xb.isEmptySquare(temp)) {
-                    output.add(temp);
-                    try {
-                        temp = XiangqiBoard.shiftSquare(temp, 0, 1);
-                    } catch(IllegalArgumentException iae) {
-                        break;
-                    }
-                }
-                if(XiangqiBoard.isValidSquare(temp) && !xb.isEmptySquare(temp)) {
-                    if(xb.getPiece(temp).isRed ^ isRed) {
-                        output.add(temp);
-                    }
-                }
-            }
-            if(XiangqiBoard.isValidShift(currentPosition, 0, -1)) {
-                temp = XiangqiBoard.shiftSquare(currentPosition, 0, -1);
-                while(xb.isEmptySquare(temp)) {
-                    try {
-                        temp = XiangqiBoard.shiftSquare(temp, 0, -1);
-                    } catch(IllegalArgumentException iae) {
-                        break;
-                    }
-                }
-                if(XiangqiBoard.isValidShift(temp, 0, -1)) {
-                    temp = XiangqiBoard.shiftSquare(temp, 0, -1);
-                    while(xb.isEmptySquare(temp)) {
-                        try {
-                            temp = XiangqiBoard.shiftSquare(temp, 0, -1);
-                        } catch(IllegalArgumentException iae) {
-                            break;
-                        }
-                    }
-                    if(XiangqiBoard.isValidSquare(temp) && !xb.isEmptySquare(temp)) {
-                        if(xb.getPiece(temp).isRed ^ isRed) {
-                            output.add(temp);
-                        }
-                    }
-                }
-            }
-        } else {
-            if(XiangqiBoard.isValidShift(currentPosition, 0, -1)) {
-                temp = XiangqiBoard.shiftSquare(currentPosition, 0, -1);
-                while(xb.isEmptySquare(temp)) {
-                    output.add(temp);
-                    try {
-                        temp = XiangqiBoard.shiftSquare(temp, 0, -1);
-                    } catch(IllegalArgumentException iae) {
-                        break;
-                    }
-                }
-                if(XiangqiBoard.isValidSquare(temp) && !xb.isEmptySquare(temp)) {
-                    if(xb.getPiece(temp).isRed ^ isRed) {
-                        output.add(temp);
-                    }
-                }
-            }
-            if(XiangqiBoard.isValidShift(currentPosition, 0, 1)) {
-                temp = XiangqiBoard.shiftSquare(currentPosition, 0, 1);
-                while(xb.isEmptySquare(temp)) {
-                    try {
-                        temp = XiangqiBoard.shiftSquare(temp, 0, 1);
-                    } catch(IllegalArgumentException iae) {
-                        break;
-                    }
-                }
-                if(XiangqiBoard.isValidShift(temp, 0, 1)) {
-                    temp = XiangqiBoard.shiftSquare(temp, 0, 1);
-                    while(xb.isEmptySquare(temp)) {
-                        try {
-                            temp = XiangqiBoard.shiftSquare(temp, 0, 1);
-                        } catch(IllegalArgumentException iae) {
-                            break;
-                        }
-                    }
-                    if(XiangqiBoard.isValidSquare(temp) && !xb.isEmptySquare(temp)) {
-                        if(xb.getPiece(temp).isRed ^ isRed) {
-                            output.add(temp);
-                        }
-                    }
-                }
-            }
-        }
-        return output;
     }
 
     @Override
-    public LinkedList<String> legalCaptures(XiangqiBoard xb, String currentPosition) {
-        return allLegalMoves(xb, currentPosition);
+    public void generateCaptures(XiangqiBoard xb, int square, MoveList moves) {
+        if(!(xb.getPiece(square) instanceof Cannon)) throw new IllegalArgumentException("This isn\'t a cannon!");
+        for(int i = 0; i < 4; i++) {
+            int temp = XiangqiBoard.shift(square, COL_SHIFTS[i], ROW_SHIFTS[i]);
+            while(temp != XiangqiBoard.NO_SQUARE && xb.isEmptySquare(temp)) {
+                temp = XiangqiBoard.shift(temp, COL_SHIFTS[i], ROW_SHIFTS[i]);
+            }
+            if(temp == XiangqiBoard.NO_SQUARE) continue;
+            // jump over the screen
+            temp = XiangqiBoard.shift(temp, COL_SHIFTS[i], ROW_SHIFTS[i]);
+            while(temp != XiangqiBoard.NO_SQUARE && xb.isEmptySquare(temp)) {
+                temp = XiangqiBoard.shift(temp, COL_SHIFTS[i], ROW_SHIFTS[i]);
+            }
+            if(temp != XiangqiBoard.NO_SQUARE) addCapture(xb, square, temp, moves);
+        }
     }
 
-    @Override
-    public String getCharRepresentation() {
-        return "C";
-    }
-    
     /**
-     * init
+     * What a cannon is worth in the midgame and in the endgame, a little less
+     * in the endgame when there are fewer screens to jump
      */
-    {
-        try {
-            black = ImageIO.read(getClass().getResource("/images/bc.gif"));
-            red = ImageIO.read(getClass().getResource("/images/rc.gif"));
-        } catch (IOException ex) {
-            ex.printStackTrace();
-        }
-    }
-    
+    private static final int MIDGAME_VALUE = 450, ENDGAME_VALUE = 420;
+
     /**
-     * The images for the black and red pieces
+     * Cannons want the central file, aimed at the enemy general, and are clumsy
+     * inside the enemy fortress itself, from red's side
      */
-    private static BufferedImage black, red;
-    
+    private static final int[] MIDGAME_TABLE = {
+              6,   4,   0, -10, -12, -10,   0,   4,   6,
+              2,   2,   0,  -4, -14,  -4,   0,   2,   2,
+              2,   2,   0, -10,  -8, -10,   0,   2,   2,
+              0,   0,  -2,   4,  10,   4,  -2,   0,   0,
+              0,   0,   0,   2,   8,   2,   0,   0,   0,
+             -2,   0,   4,   2,   6,   2,   4,   0,  -2,
+              0,   0,   0,   2,   4,   2,   0,   0,   0,
+              4,   0,   8,   6,  10,   6,   8,   0,   4,
+              0,   2,   4,   6,   6,   6,   4,   2,   0,
+              0,   0,   2,   6,   6,   6,   2,   0,   0
+    };
+
     /**
-     * Draws this piece
-     * @param g2D the Graphics2D to draw on
-     * @param x the X coordinate of the image
-     * @param y the Y coordinate of the image
-     * @param width the width of the picture
-     * @param height the height of the picture
+     * In the endgame, a cannon still wants the central files, the further
+     * forward the better, from red's side
      */
+    private static final int[] ENDGAME_TABLE = {
+              2,   2,   2,   4,   4,   4,   2,   2,   2,
+              2,   2,   2,   4,   4,   4,   2,   2,   2,
+              2,   2,   2,   4,   6,   4,   2,   2,   2,
+              2,   2,   2,   4,   6,   4,   2,   2,   2,
+              0,   2,   2,   4,   6,   4,   2,   2,   0,
+              0,   2,   2,   4,   6,   4,   2,   2,   0,
+              0,   0,   2,   4,   6,   4,   2,   0,   0,
+              0,   0,   2,   4,   6,   4,   2,   0,   0,
+              0,   0,   0,   2,   4,   2,   0,   0,   0,
+              0,   0,   0,   2,   4,   2,   0,   0,   0
+    };
+
     @Override
-    public void draw(Graphics2D g2D, int x, int y, int width, int height) {
-        if(isRed) {
-            g2D.drawImage(red, x, y, width, height, null);
-        } else {
-            g2D.drawImage(black, x, y, width, height, null);
-        }
+    public int getValue(int square, boolean endgame) {
+        return (endgame) ? ENDGAME_VALUE + ENDGAME_TABLE[square] : MIDGAME_VALUE + MIDGAME_TABLE[square];
     }
-    
-    /**
-     * The images for the black and red ghosts
-     */
-    private static BufferedImage blackGhost, redGhost;
-    
-    /**
-     * Draws a ghost of this image
-     * @param g2D the Graphics2D to draw on
-     * @param x the X coordinate of the image
-     * @param y the Y coordinate of the image
-     * @param width the width of the picture
-     * @param height the height of the picture
-     */
+
     @Override
-    public void drawGhost(Graphics2D g2D, int x, int y, int width, int height) {
-        if(isRed) {
-            g2D.drawImage(redGhost, x, y, width, height, null);
-        } else {
-            g2D.drawImage(blackGhost, x, y, width, height, null);
-        }
+    public int getType() {
+        return CANNON;
     }
-    
-    /**
-     * Gets this piece's image that is red or black
-     * @param isRed whether the image should be red or black
-     * @return the image that represents this piece
-     */
-    public static BufferedImage getImage(boolean isRed) {
-        return (isRed)?red:black;
+
+    @Override
+    public String getCharRepresentation() {
+        return "C";
     }
 }
\ No newline at end of file
@@ -1,170 +1,117 @@
 package offlinexiangqi;
 
-import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.util.LinkedList;
-import javax.imageio.ImageIO;
-
 /**
  * A class that represents a Chariot
  * @author Jed Wang
  */
 public class Chariot extends AbstractPiece {
 
+    /**
+     * The red and black Chariots
+     */
+    public static final Chariot RED = new Chariot(true), BLACK = new Chariot(false);
+    
     /**
      * A constructor that creates a new Chariot
      * @param isRed whether this Chariot is red
      */
-    public Chariot(boolean isRed) {
+    private Chariot(boolean isRed) {
         super(isRed);
     }
+    
+    /**
+     * Returns the shared Chariot of a color
+     * @param isRed whether the Chariot is red
+     * @return the red or black Chariot
+     */
+    public static Chariot get(boolean isRed) {
+        return (isRed) ? RED : BLACK;
+    }
+
+    /**
+     * The column and row shifts of the four directions a Chariot can slide
+     */
+    private static final int[] COL_SHIFTS = {1, -1, 0, 0}, 
+            ROW_SHIFTS = {0, 0, 1, -1};
 
     @Override
-    public LinkedList<String> allLegalMoves(XiangqiBoard xb, String currentPosition) {
-        if(!XiangqiBoard.isValidSquare(currentPosition)) throw new IllegalArgumentException("Invalid square");
-        if(!(xb.getPiece(currentPosition).getCharRepresentation().equals("R"))) throw new IllegalArgumentException("This isn\'t a chariot!");
-        LinkedList<String> output = new LinkedList<>();
-        String temp;
-        if(XiangqiBoard.isValidShift(currentPosition, 1, 0)) {
-            temp = XiangqiBoard.shiftSquare(currentPosition, 1, 0);
-            while(xb.isEmptySquare(temp)) {
-                output.add(temp);
-                try {
-                    temp = XiangqiBoard.shiftSquare(temp, 1, 0);
-                } catch(IllegalArgumentException iae) {
-                    break;
-                }
+    public void generateMoves(XiangqiBoard xb, int square, MoveList moves) {
+        if(!(xb.getPiece(square) instanceof Chariot)) throw new IllegalArgumentException("This isn\'t a chariot!");
+        for(int i = 0; i < 4; i++) {
+            int temp = XiangqiBoard.shift(square, COL_SHIFTS[i], ROW_SHIFTS[i]);
+            while(temp != XiangqiBoard.NO_SQUARE && xb.isEmptySquare(temp)) {
+                addMove(xb, square, temp, moves);
+                temp = XiangqiBoard.shift(temp, COL_SHIFTS[i], ROW_SHIFTS[i]);
             }
-            if(XiangqiBoard.isValidSquare(temp) && !xb.isEmptySquare(temp)) {
-                if(xb.getPiece(temp).isRed ^ isRed) {
-                    output.add(temp);
-                }
+            if(temp != XiangqiBoard.NO_SQUARE && (xb.getPiece(temp).isRed ^ isRed)) {
+                addMove(xb, square, temp, moves);
             }
         }
-        if(XiangqiBoard.isValidShift(currentPosition, -1, 0)) {
-            temp = XiangqiBoard.shiftSquare(currentPosition, -1, 0);
-            while(xb.isEmptySquare(temp)) {
-                output.add(temp);
-                try {
-                    temp = XiangqiBoard.shiftSquare(temp, -1, 0);
-                } catch(IllegalArgumentException iae) {
-                    break;
-                }
-            }
-            if(XiangqiBoard.isValidSquare(temp) && !xb.isEmptySquare(temp)) {
-                if(xb.getPiece(temp).isRed ^ isRed) {
-                    output.add(temp);
-                }
-            }
-        }
-        if(XiangqiBoard.isValidShift(currentPosition, 0, 1)) {
-            temp = XiangqiBoard.shiftSquare(currentPosition, 0, 1);
-            while(xb.isEmptySquare(temp)) {
-                output.add(temp);
-                try {
-                    temp = XiangqiBoard.shiftSquare(temp, 0, 1);
-                } catch(IllegalArgumentException iae) {
-                    break;
-                }
-            }
-            if(XiangqiBoard.isValidSquare(temp) && !xb.isEmptySquare(temp)) {
-                if(xb.getPiece(temp).isRed ^ isRed) {
-                    output.add(temp);
-                }
-            }
-        }
-        if(XiangqiBoard.isValidShift(currentPosition, 0, -1)) {
-            temp = XiangqiBoard.shiftSquare(currentPosition, 0, -1);
-            while(xb.isEmptySquare(temp)) {
-                output.add(temp);
-                try {
-                    temp = XiangqiBoard.shiftSquare(temp, 0, -1);
-                } catch(IllegalArgumentException iae) {
-                    break;
-                }
-            }
-            if(XiangqiBoard.isValidSquare(temp) && !xb.isEmptySquare(temp)) {
-                if(xb.getPiece(temp).isRed ^ isRed) {
-                    output.add(temp);
-                }
-            }
-        }
-        return output;
     }
 
     @Override
-    public LinkedList<String> legalCaptures(XiangqiBoard xb, String currentPosition) {
-        return allLegalMoves(xb, currentPosition);
+    public void generateCaptures(XiangqiBoard xb, int square, MoveList moves) {
+        if(!(xb.getPiece(square) instanceof Chariot)) throw new IllegalArgumentException("This isn\'t a chariot!");
+        for(int i = 0; i < 4; i++) {
+            int temp = XiangqiBoard.shift(square, COL_SHIFTS[i], ROW_SHIFTS[i]);
+            while(temp != XiangqiBoard.NO_SQUARE && xb.isEmptySquare(temp)) {
+                temp = XiangqiBoard.shift(temp, COL_SHIFTS[i], ROW_SHIFTS[i]);
+            }
+            if(temp != XiangqiBoard.NO_SQUARE) addCapture(xb, square, temp, moves);
+        }
     }
 
-    @Override
-    public String getCharRepresentation() {
-        return "R";
-    }
-    
     /**
-     * init
+     * What a chariot is worth in the midgame and in the endgame
      */
-    {
-        try {
-            black = ImageIO.read(getClass().getResource("/images/br.gif"));
-            red = ImageIO.read(getClass().getResource("/images/rr.gif"));
-        } catch (IOException ex) {
-            ex.printStackTrace();
-        }
-    }
-    
+    private static final int MIDGAME_VALUE = 900, ENDGAME_VALUE = 950;
+
     /**
-     * The images for the black and red pieces
+     * Chariots want the central files, and most of all the rank just in front
+     * of the enemy general, from red's side
      */
-    private static BufferedImage black, red;
-    
+    private static final int[] MIDGAME_TABLE = {
+             14,  14,  12,  18,  16,  18,  12,  14,  14,
+             16,  20,  18,  24,  26,  24,  18,  20,  16,
+             12,  12,  12,  18,  18,  18,  12,  12,  12,
+             12,  18,  16,  22,  22,  22,  16,  18,  12,
+             12,  14,  12,  18,  18,  18,  12,  14,  12,
+             12,  16,  14,  20,  20,  20,  14,  16,  12,
+              6,  10,   8,  14,  14,  14,   8,  10,   6,
+              4,   8,   6,  14,  12,  14,   6,   8,   4,
+              8,   4,   8,  16,   8,  16,   8,   4,   8,
+             -2,  10,   6,  14,  12,  14,   6,  10,  -2
+    };
+
     /**
-     * Draws this piece
-     * @param g2D the Graphics2D to draw on
-     * @param x the X coordinate of the image
-     * @param y the Y coordinate of the image
-     * @param width the width of the picture
-     * @param height the height of the picture
+     * In the endgame, where a chariot stands matters less, as long as it is
+     * forward and central, from red's side
      */
+    private static final int[] ENDGAME_TABLE = {
+             10,  10,  10,  12,  12,  12,  10,  10,  10,
+             12,  14,  14,  16,  16,  16,  14,  14,  12,
+             10,  12,  12,  14,  14,  14,  12,  12,  10,
+             10,  12,  12,  14,  14,  14,  12,  12,  10,
+             10,  12,  12,  14,  14,  14,  12,  12,  10,
+              8,  10,  10,  12,  12,  12,  10,  10,   8,
+              6,   8,   8,  10,  10,  10,   8,   8,   6,
+              4,   6,   6,   8,   8,   8,   6,   6,   4,
+              4,   6,   6,   8,   8,   8,   6,   6,   4,
+              2,   4,   4,   6,   6,   6,   4,   4,   2
+    };
+
     @Override
-    public void draw(Graphics2D g2D, int x, int y, int width, int height) {
-        if(isRed) {
-            g2D.drawImage(red, x, y, width, height, null);
-        } else {
-            g2D.drawImage(black, x, y, width, height, null);
-        }
+    public int getValue(int square, boolean endgame) {
+        return (endgame) ? ENDGAME_VALUE + ENDGAME_TABLE[square] : MIDGAME_VALUE + MIDGAME_TABLE[square];
     }
-    
-    /**
-     * The images for the black and red ghosts
-     */
-    private static BufferedImage blackGhost, redGhost;
-    
-    /**
-     * Draws a ghost of this image
-     * @param g2D the Graphics2D to draw on
-     * @param x the X coordinate of the image
-     * @param y the Y coordinate of the image
-     * @param width the width of the picture
-     * @param height the height of the picture
-     */
+
     @Override
-    public void drawGhost(Graphics2D g2D, int x, int y, int width, int height) {
-        if(isRed) {
-            g2D.drawImage(redGhost, x, y, width, height, null);
-        } else {
-            g2D.drawImage(blackGhost, x, y, width, height, null);
-        }
+    public int getType() {
+        return CHARIOT;
     }
-    
-    /**
-     * Gets this piece's image that is red or black
-     * @param isRed whether the image should be red or black
-     * @return the image that represents this piece
-     */
-    public static BufferedImage getImage(boolean isRed) {
-        return (isRed)?red:black;
+
+    @Override
+    public String getCharRepresentation() {
+        return "R";
     }
 }
\ No newline at end of file
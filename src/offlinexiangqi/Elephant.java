@@ -1,142 +1,115 @@
 package offlinexiangqi;
 
-import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.util.LinkedList;
-import javax.imageio.ImageIO;
-
 /**
  * A class that represents an Elephant
  * @author Jed Wang
  */
 public class Elephant extends AbstractPiece {
 
+    /**
+     * The red and black Elephants
+     */
+    public static final Elephant RED = new Elephant(true), BLACK = new Elephant(false);
+    
     /**
      * A constructor that creates a new Elephant
      * @param isRed whether this Elephant is red
      */
-    public Elephant(boolean isRed) {
+    private Elephant(boolean isRed) {
         super(isRed);
     }
+    
+    /**
+     * Returns the shared Elephant of a color
+     * @param isRed whether the Elephant is red
+     * @return the red or black Elephant
+     */
+    public static Elephant get(boolean isRed) {
+        return (isRed) ? RED : BLACK;
+    }
+
+    /**
+     * The column and row shifts of the four diagonals an Elephant can move
+     * along
+     */
+    private static final int[] COL_SHIFTS = {-1, 1, -1, 1}, 
+            ROW_SHIFTS = {-1, -1, 1, 1};
 
     @Override
-    public LinkedList<String> allLegalMoves(XiangqiBoard xb, String currentPosition) {
-        if(!XiangqiBoard.isValidSquare(currentPosition)) throw new IllegalArgumentException("Invalid square");
-        if(!(xb.getPiece(currentPosition).getCharRepresentation().equals("E"))) throw new IllegalArgumentException("This isn\'t an elephant!");
-        LinkedList<String> output = new LinkedList<>();
-        String shift;
-        if(XiangqiBoard.isValidShift(currentPosition, -2, -2)) {
-            shift = XiangqiBoard.shiftSquare(currentPosition, -2, -2);
-            if(xb.isEmptySquare(XiangqiBoard.shiftSquare(currentPosition, -1, -1)) && XiangqiBoard.behindRiver(shift, isRed)) {
-                if(xb.isEmptySquare(shift))
-                    output.add(shift);
-                else if(xb.getPiece(shift).isRed ^ isRed)
-                    output.add(shift);
+    public void generateMoves(XiangqiBoard xb, int square, MoveList moves) {
+        if(!(xb.getPiece(square) instanceof Elephant)) throw new IllegalArgumentException("This isn\'t an elephant!");
+        for(int i = 0; i < 4; i++) {
+            int shift = XiangqiBoard.shift(square, 2*COL_SHIFTS[i], 2*ROW_SHIFTS[i]);
+            if(shift == XiangqiBoard.NO_SQUARE || !XiangqiBoard.behindRiver(shift, isRed)) continue;
+            if(xb.isEmptySquare(XiangqiBoard.shift(square, COL_SHIFTS[i], ROW_SHIFTS[i]))) {
+                if(xb.isEmptySquare(shift) || (xb.getPiece(shift).isRed ^ isRed))
+                    addMove(xb, square, shift, moves);
             }
         }
-        if(XiangqiBoard.isValidShift(currentPosition, 2, -2)) {
-            shift = XiangqiBoard.shiftSquare(currentPosition, 2, -2);
-            if(xb.isEmptySquare(XiangqiBoard.shiftSquare(currentPosition, 1, -1)) && XiangqiBoard.behindRiver(shift, isRed)) {
-                if(xb.isEmptySquare(shift))
-                    output.add(shift);
-                else if(xb.getPiece(shift).isRed ^ isRed)
-                    output.add(shift);
-            }
-        }
-        if(XiangqiBoard.isValidShift(currentPosition, -2, 2)) {
-            shift = XiangqiBoard.shiftSquare(currentPosition, -2, 2);
-            if(xb.isEmptySquare(XiangqiBoard.shiftSquare(currentPosition, -1, 1)) && XiangqiBoard.behindRiver(shift, isRed)) {
-                if(xb.isEmptySquare(shift))
-                    output.add(shift);
-                else if(xb.getPiece(shift).isRed ^ isRed)
-                    output.add(shift);
-            }
-        }
-        if(XiangqiBoard.isValidShift(currentPosition, 2, 2)) {
-            shift = XiangqiBoard.shiftSquare(currentPosition, 2, 2);
-            if(xb.isEmptySquare(XiangqiBoard.shiftSquare(currentPosition, 1, 1)) && XiangqiBoard.behindRiver(shift, isRed)) {
-                if(xb.isEmptySquare(shift))
-                    output.add(shift);
-                else if(xb.getPiece(shift).isRed ^ isRed)
-                    output.add(shift);
-            }
-        }
-        return output;
     }
 
     @Override
-    public LinkedList<String> legalCaptures(XiangqiBoard xb, String currentPosition) {
-        return allLegalMoves(xb, currentPosition);
+    public void generateCaptures(XiangqiBoard xb, int square, MoveList moves) {
+        if(!(xb.getPiece(square) instanceof Elephant)) throw new IllegalArgumentException("This isn\'t an elephant!");
+        for(int i = 0; i < 4; i++) {
+            int shift = XiangqiBoard.shift(square, 2*COL_SHIFTS[i], 2*ROW_SHIFTS[i]);
+            if(shift == XiangqiBoard.NO_SQUARE || !XiangqiBoard.behindRiver(shift, isRed)) continue;
+            if(xb.isEmptySquare(XiangqiBoard.shift(square, COL_SHIFTS[i], ROW_SHIFTS[i])))
+                addCapture(xb, square, shift, moves);
+        }
     }
 
-    @Override
-    public String getCharRepresentation() {
-        return "E";
-    }
-    
     /**
-     * init
+     * What an elephant is worth in the midgame and in the endgame
      */
-    {
-        try {
-            black = ImageIO.read(getClass().getResource("/images/bb.gif"));
-            red = ImageIO.read(getClass().getResource("/images/rb.gif"));
-        } catch (IOException ex) {
-            ex.printStackTrace();
-        }
-    }
-    
+    private static final int MIDGAME_VALUE = 200, ENDGAME_VALUE = 180;
+
     /**
-     * The images for the black and red pieces
+     * Elephants defend best from the middle of their rank, and worst from the
+     * edges or the river, from red's side
      */
-    private static BufferedImage black, red;
-    
+    private static final int[] MIDGAME_TABLE = {
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,  -2,   0,   0,   0,  -2,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+             -2,   0,   0,   0,   4,   0,   0,   0,  -2,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0
+    };
+
     /**
-     * Draws this piece
-     * @param g2D the Graphics2D to draw on
-     * @param x the X coordinate of the image
-     * @param y the Y coordinate of the image
-     * @param width the width of the picture
-     * @param height the height of the picture
+     * With less material left, an elephant on the edge or at the river can't
+     * get back to guard the general in time, from red's side
      */
+    private static final int[] ENDGAME_TABLE = {
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,  -6,   0,   0,   0,  -6,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+             -8,   0,   0,   0,   8,   0,   0,   0,  -8,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0
+    };
+
     @Override
-    public void draw(Graphics2D g2D, int x, int y, int width, int height) {
-        if(isRed) {
-            g2D.drawImage(red, x, y, width, height, null);
-        } else {
-            g2D.drawImage(black, x, y, width, height, null);
-        }
+    public int getValue(int square, boolean endgame) {
+        return (endgame) ? ENDGAME_VALUE + ENDGAME_TABLE[square] : MIDGAME_VALUE + MIDGAME_TABLE[square];
     }
-    
-    /**
-     * The images for the black and red ghosts
-     */
-    private static BufferedImage blackGhost, redGhost;
-    
-    /**
-     * Draws a ghost of this image
-     * @param g2D the Graphics2D to draw on
-     * @param x the X coordinate of the image
-     * @param y the Y coordinate of the image
-     * @param width the width of the picture
-     * @param height the height of the picture
-     */
+
     @Override
-    public void drawGhost(Graphics2D g2D, int x, int y, int width, int height) {
-        if(isRed) {
-            g2D.drawImage(redGhost, x, y, width, height, null);
-        } else {
-            g2D.drawImage(blackGhost, x, y, width, height, null);
-        }
+    public int getType() {
+        return ELEPHANT;
     }
-    
-    /**
-     * Gets this piece's image that is red or black
-     * @param isRed whether the image should be red or black
-     * @return the image that represents this piece
-     */
-    public static BufferedImage getImage(boolean isRed) {
-        return (isRed)?red:black;
+
+    @Override
+    public String getCharRepresentation() {
+        return "E";
     }
 }
\ No newline at end of file
@@ -0,0 +1,113 @@
+package offlinexiangqi;
+
+/**
+ * A class that scores positions by material and piece-square tables<br>
+ * <br>
+ * Each piece class has a midgame and an endgame table, written from red's
+ * side. The board keeps running midgame and endgame totals as moves are
+ * made, and the score blends the two by how much material is left.
+ * @author Jed Wang
+ */
+public final class Evaluation {
+    /**
+     * What each type of piece is roughly worth, indexed by type.<br>
+     * Used to order and weigh exchanges; the General is not counted,
+     * since it can never be captured.
+     */
+    private static final int[] VALUES = {0, 0, 200, 200, 400, 900, 450, 100};
+    
+    /**
+     * How much each type of piece counts toward the midgame, indexed by type
+     */
+    private static final int[] PHASE_WEIGHTS = {0, 0, 0, 0, 1, 2, 1, 0};
+    
+    /**
+     * The phase of the starting position, and of anything with more material
+     */
+    public static final int MAX_PHASE = 16;
+    
+    /**
+     * The midgame and endgame worth of each piece on each square,
+     * negative for black pieces
+     * [piece code][square index]
+     */
+    private static final int[][] MIDGAME = new int[16][XiangqiBoard.BOARD_SIZE],
+            ENDGAME = new int[16][XiangqiBoard.BOARD_SIZE];
+    
+    /**
+     * static init
+     */
+    static {
+        for(int code = 0; code < 16; code++) {
+            AbstractPiece ap = AbstractPiece.fromCode(code);
+            if(ap == null) continue;
+            for(int square = 0; square < XiangqiBoard.BOARD_SIZE; square++) {
+                if(ap.isRed) {
+                    MIDGAME[code][square] = ap.getValue(square, false);
+                    ENDGAME[code][square] = ap.getValue(square, true);
+                } else {
+                    // black reads red's tables with the rows flipped
+                    int mirror = XiangqiBoard.toSquareIndex(XiangqiBoard.getColumn(square),
+                            9 - XiangqiBoard.getRow(square));
+                    MIDGAME[code][square] = -ap.getValue(mirror, false);
+                    ENDGAME[code][square] = -ap.getValue(mirror, true);
+                }
+            }
+        }
+    }
+    
+    /**
+     * No instances
+     */
+    private Evaluation() {
+    }
+    
+    /**
+     * Returns what a type of piece is roughly worth
+     * @param type the type of piece
+     * @return the value of the piece
+     */
+    public static int value(int type) {
+        return VALUES[type];
+    }
+    
+    /**
+     * Returns what a piece is worth on a square in the midgame
+     * @param code the piece code, 0 for none
+     * @param square the square index the piece is on
+     * @return the worth, negative for a black piece
+     */
+    public static int midgame(int code, int square) {
+        return MIDGAME[code][square];
+    }
+    
+    /**
+     * Returns what a piece is worth on a square in the endgame
+     * @param code the piece code, 0 for none
+     * @param square the square index the piece is on
+     * @return the worth, negative for a black piece
+     */
+    public static int endgame(int code, int square) {
+        return ENDGAME[code][square];
+    }
+    
+    /**
+     * Returns how much a piece counts toward the midgame
+     * @param code the piece code, 0 for none
+     * @return the phase weight
+     */
+    public static int phase(int code) {
+        return PHASE_WEIGHTS[code & ~AbstractPiece.BLACK_CODE];
+    }
+    
+    /**
+     * Scores a position from the board's running totals
+     * @param xb the position to score
+     * @return the score, positive if the side to move is better
+     */
+    public static int evaluate(XiangqiBoard xb) {
+        int phase = Math.min(xb.getPhase(), MAX_PHASE);
+        int score = (xb.getMidgameScore() * phase + xb.getEndgameScore() * (MAX_PHASE - phase)) / MAX_PHASE;
+        return (xb.isRedToMove()) ? score : -score;
+    }
+}
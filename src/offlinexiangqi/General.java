@@ -1,153 +1,135 @@
 package offlinexiangqi;
 
-import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.util.LinkedList;
-import javax.imageio.ImageIO;
-
 /**
  * A class that represents a General
  * @author Jed Wang
  */
 public class General extends AbstractPiece {
     
+    /**
+     * The red and black Generals
+     */
+    public static final General RED = new General(true), BLACK = new General(false);
+    
     /**
      * A constructor that creates a new General.
      * @param isRed whether the General is red
      */
-    public General(boolean isRed) {
+    private General(boolean isRed) {
         super(isRed);
     }
     
+    /**
+     * Returns the shared General of a color
+     * @param isRed whether the General is red
+     * @return the red or black General
+     */
+    public static General get(boolean isRed) {
+        return (isRed) ? RED : BLACK;
+    }
+    
+    /**
+     * The column and row shifts of the four directions a General can move
+     */
+    private static final int[] COL_SHIFTS = {0, 0, 1, -1}, 
+            ROW_SHIFTS = {-1, 1, 0, 0};
+    
     @Override
-    public LinkedList<String> allLegalMoves(XiangqiBoard xb, String currentPosition) {
-        if(!XiangqiBoard.isValidSquare(currentPosition)) throw new IllegalArgumentException("Invalid square");
-        if(!(xb.getPiece(currentPosition).getCharRepresentation().equals("G"))) throw new IllegalArgumentException("This isn\'t a general!");
-        LinkedList<String> output = new LinkedList<>();
-        String shift;
-        if(XiangqiBoard.isValidShift(currentPosition, 0, -1)) {
-            shift = XiangqiBoard.shiftSquare(currentPosition, 0, -1);
-            if(XiangqiBoard.insideFortress(shift, isRed)) {
-                if(xb.isEmptySquare(shift))
-                    output.add(shift);
-                else if(xb.getPiece(shift).isRed ^ isRed)
-                    output.add(shift);
-            }
-        }
-        if(XiangqiBoard.isValidShift(currentPosition, 0, 1)) {
-            shift = XiangqiBoard.shiftSquare(currentPosition, 0, 1);
-            if(XiangqiBoard.insideFortress(shift, isRed)) {
-                if(xb.isEmptySquare(shift))
-                    output.add(shift);
-                else if(xb.getPiece(shift).isRed ^ isRed)
-                    output.add(shift);
-            }
-        }
-        if(XiangqiBoard.isValidShift(currentPosition, 1, 0)) {
-            shift = XiangqiBoard.shiftSquare(currentPosition, 1, 0);
-            if(XiangqiBoard.insideFortress(shift, isRed)) {
-                if(xb.isEmptySquare(shift))
-                    output.add(shift);
-                else if(xb.getPiece(shift).isRed ^ isRed)
-                    output.add(shift);
+    public void generateMoves(XiangqiBoard xb, int square, MoveList moves) {
+        if(!(xb.getPiece(square) instanceof General)) throw new IllegalArgumentException("This isn\'t a general!");
+        for(int i = 0; i < 4; i++) {
+            int shift = XiangqiBoard.shift(square, COL_SHIFTS[i], ROW_SHIFTS[i]);
+            if(shift != XiangqiBoard.NO_SQUARE && XiangqiBoard.insideFortress(shift, isRed)) {
+                if(xb.isEmptySquare(shift) || (xb.getPiece(shift).isRed ^ isRed))
+                    addMove(xb, square, shift, moves);
             }
         }
-        if(XiangqiBoard.isValidShift(currentPosition, -1, 0)) {
-            shift = XiangqiBoard.shiftSquare(currentPosition, -1, 0);
-            if(XiangqiBoard.insideFortress(shift, isRed)) {
-                if(xb.isEmptySquare(shift))
-                    output.add(shift);
-                else if(xb.getPiece(shift).isRed ^ isRed)
-                    output.add(shift);
-            }
-        }
-        if(XiangqiBoard.getColumn(xb.getGeneralPos(!isRed)) == XiangqiBoard.getColumn(currentPosition)) {
-            int col = XiangqiBoard.getColumn(currentPosition);
+        addFlyingCapture(xb, square, moves);
+    }
+    
+    /**
+     * Adds the capture of the other General, if nothing stands between the two
+     * @param xb the current state of the xiangqi game
+     * @param square the square index of this General
+     * @param moves the list to add the packed move to
+     */
+    private void addFlyingCapture(XiangqiBoard xb, int square, MoveList moves) {
+        int other = xb.getGeneralSquare(!isRed);
+        if(XiangqiBoard.getColumn(other) == XiangqiBoard.getColumn(square)) {
+            int step = (other > square) ? 9 : -9;
             boolean flag = true;
-            for(int i = XiangqiBoard.getRow(xb.getGeneralPos(true))-1;i>XiangqiBoard.getRow(xb.getGeneralPos(false));i--) {
-                if(!xb.isEmptySquare(XiangqiBoard.toSquare(col, i))) {
+            for(int i = square + step; i != other; i += step) {
+                if(!xb.isEmptySquare(i)) {
                     flag = false;
                     break;
                 }
             }
-            if(flag) output.add(xb.getGeneralPos(!isRed));
+            if(flag) addMove(xb, square, other, moves);
         }
-        return output;
     }
 
     @Override
-    public LinkedList<String> legalCaptures(XiangqiBoard xb, String currentPosition) {
-        return allLegalMoves(xb, currentPosition);
+    public void generateCaptures(XiangqiBoard xb, int square, MoveList moves) {
+        if(!(xb.getPiece(square) instanceof General)) throw new IllegalArgumentException("This isn\'t a general!");
+        for(int i = 0; i < 4; i++) {
+            int shift = XiangqiBoard.shift(square, COL_SHIFTS[i], ROW_SHIFTS[i]);
+            if(shift != XiangqiBoard.NO_SQUARE && XiangqiBoard.insideFortress(shift, isRed))
+                addCapture(xb, square, shift, moves);
+        }
+        addFlyingCapture(xb, square, moves);
     }
 
-    @Override
-    public String getCharRepresentation() {
-        return "G";
-    }
-    
     /**
-     * init
+     * The general is never traded, so it is worth nothing as material
      */
-    {
-        try {
-            black = ImageIO.read(getClass().getResource("/images/bk.gif"));
-            red = ImageIO.read(getClass().getResource("/images/rk.gif"));
-        } catch (IOException ex) {
-            ex.printStackTrace();
-        }
-    }
-    
+    private static final int MIDGAME_VALUE = 0, ENDGAME_VALUE = 0;
+
     /**
-     * The images for the black and red pieces
+     * The general is safest at the back of the fortress, and stepping up
+     * exposes it, from red's side
      */
-    private static BufferedImage black, red;
-    
+    private static final int[] MIDGAME_TABLE = {
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0, -16, -16, -16,   0,   0,   0,
+              0,   0,   0,  -8,  -8,  -8,   0,   0,   0,
+              0,   0,   0,  -2,   0,  -2,   0,   0,   0
+    };
+
     /**
-     * Draws this piece
-     * @param g2D the Graphics2D to draw on
-     * @param x the X coordinate of the image
-     * @param y the Y coordinate of the image
-     * @param width the width of the picture
-     * @param height the height of the picture
+     * With fewer attackers left, the general can step forward more safely and
+     * help, from red's side
      */
+    private static final int[] ENDGAME_TABLE = {
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,  -8,  -6,  -8,   0,   0,   0,
+              0,   0,   0,  -2,   0,  -2,   0,   0,   0,
+              0,   0,   0,  -2,   0,  -2,   0,   0,   0
+    };
+
     @Override
-    public void draw(Graphics2D g2D, int x, int y, int width, int height) {
-        if(isRed) {
-            g2D.drawImage(red, x, y, width, height, null);
-        } else {
-            g2D.drawImage(black, x, y, width, height, null);
-        }
+    public int getValue(int square, boolean endgame) {
+        return (endgame) ? ENDGAME_VALUE + ENDGAME_TABLE[square] : MIDGAME_VALUE + MIDGAME_TABLE[square];
     }
-    
-    /**
-     * The images for the black and red ghosts
-     */
-    private static BufferedImage blackGhost, redGhost;
-    
-    /**
-     * Draws a ghost of this image
-     * @param g2D the Graphics2D to draw on
-     * @param x the X coordinate of the image
-     * @param y the Y coordinate of the image
-     * @param width the width of the picture
-     * @param height the height of the picture
-     */
+
     @Override
-    public void drawGhost(Graphics2D g2D, int x, int y, int width, int height) {
-        if(isRed) {
-            g2D.drawImage(redGhost, x, y, width, height, null);
-        } else {
-            g2D.drawImage(blackGhost, x, y, width, height, null);
-        }
+    public int getType() {
+        return GENERAL;
     }
-    
-    /**
-     * Gets this piece's image that is red or black
-     * @param isRed whether the image should be red or black
-     * @return the image that represents this piece
-     */
-    public static BufferedImage getImage(boolean isRed) {
-        return (isRed)?red:black;
+
+    @Override
+    public String getCharRepresentation() {
+        return "G";
     }
 }
\ No newline at end of file
@@ -1,150 +1,125 @@
 package offlinexiangqi;
 
-import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.util.LinkedList;
-import javax.imageio.ImageIO;
-
 /**
  * A class that represents a Horse
  * @author Jed Wang
  */
 public class Horse extends AbstractPiece {
 
+    /**
+     * The red and black Horses
+     */
+    public static final Horse RED = new Horse(true), BLACK = new Horse(false);
+    
     /**
      * A constructor that creates a new Horse
      * @param isRed whether this Horse is red
      */
-    public Horse(boolean isRed) {
+    private Horse(boolean isRed) {
         super(isRed);
     }
+    
+    /**
+     * Returns the shared Horse of a color
+     * @param isRed whether the Horse is red
+     * @return the red or black Horse
+     */
+    public static Horse get(boolean isRed) {
+        return (isRed) ? RED : BLACK;
+    }
+
+    /**
+     * The column and row shifts of the four legs of a Horse
+     */
+    private static final int[] LEG_COL_SHIFTS = {1, -1, 0, 0}, 
+            LEG_ROW_SHIFTS = {0, 0, 1, -1};
+    
+    /**
+     * The column and row shifts of the two moves past each leg
+     */
+    private static final int[][] COL_SHIFTS = {{2, 2}, {-2, -2}, {-1, 1}, {1, -1}}, 
+            ROW_SHIFTS = {{-1, 1}, {-1, 1}, {2, 2}, {-2, -2}};
 
     @Override
-    public LinkedList<String> allLegalMoves(XiangqiBoard xb, String currentPosition) {
-        if(!XiangqiBoard.isValidSquare(currentPosition)) throw new IllegalArgumentException("Invalid square");
-        if(!(xb.getPiece(currentPosition).getCharRepresentation().equals("H"))) throw new IllegalArgumentException("This isn\'t a horse!");
-        LinkedList<String> output = new LinkedList<>();
-        String shift;
-        if(XiangqiBoard.isValidShift(currentPosition, 1, 0)) {
-            shift = XiangqiBoard.shiftSquare(currentPosition, 1, 0);
-            if(xb.isEmptySquare(shift)) {
-                if(XiangqiBoard.isValidShift(currentPosition, 2, -1)) {
-                    output.add(XiangqiBoard.shiftSquare(currentPosition, 2, -1));
-                }
-                if(XiangqiBoard.isValidShift(currentPosition, 2, 1)) {
-                    output.add(XiangqiBoard.shiftSquare(currentPosition, 2, 1));
-                }
-            }
-        }
-        if(XiangqiBoard.isValidShift(currentPosition, -1, 0)) {
-            shift = XiangqiBoard.shiftSquare(currentPosition, -1, 0);
-            if(xb.isEmptySquare(shift)) {
-                if(XiangqiBoard.isValidShift(currentPosition, -2, -1)) {
-                    output.add(XiangqiBoard.shiftSquare(currentPosition, -2, -1));
-                }
-                if(XiangqiBoard.isValidShift(currentPosition, -2, 1)) {
-                    output.add(XiangqiBoard.shiftSquare(currentPosition, -2, 1));
-                }
-            }
-        }
-        if(XiangqiBoard.isValidShift(currentPosition, 0, 1)) {
-            shift = XiangqiBoard.shiftSquare(currentPosition, 0, 1);
-            if(xb.isEmptySquare(shift)) {
-                if(XiangqiBoard.isValidShift(currentPosition, -1, 2)) {
-                    output.add(XiangqiBoard.shiftSquare(currentPosition, -1, 2));
-                }
-                if(XiangqiBoard.isValidShift(currentPosition, 1, 2)) {
-                    output.add(XiangqiBoard.shiftSquare(currentPosition, 1, 2));
-                }
-            }
-        }
-        if(XiangqiBoard.isValidShift(currentPosition, 0, -1)) {
-            shift = XiangqiBoard.shiftSquare(currentPosition, 0, -1);
-            if(xb.isEmptySquare(shift)) {
-                if(XiangqiBoard.isValidShift(currentPosition, 1, -2)) {
-                    output.add(XiangqiBoard.shiftSquare(currentPosition, 1, -2));
-                }
-                if(XiangqiBoard.isValidShift(currentPosition, -1, -2)) {
-                    output.add(XiangqiBoard.shiftSquare(currentPosition, -1, -2));
-                }
+    public void generateMoves(XiangqiBoard xb, int square, MoveList moves) {
+        if(!(xb.getPiece(square) instanceof Horse)) throw new IllegalArgumentException("This isn\'t a horse!");
+        for(int i = 0; i < 4; i++) {
+            int leg = XiangqiBoard.shift(square, LEG_COL_SHIFTS[i], LEG_ROW_SHIFTS[i]);
+            if(leg == XiangqiBoard.NO_SQUARE || !xb.isEmptySquare(leg)) continue;
+            for(int j = 0; j < 2; j++) {
+                int shift = XiangqiBoard.shift(square, COL_SHIFTS[i][j], ROW_SHIFTS[i][j]);
+                if(shift == XiangqiBoard.NO_SQUARE) continue;
+                if(xb.isEmptySquare(shift) || (xb.getPiece(shift).isRed ^ isRed))
+                    addMove(xb, square, shift, moves);
             }
         }
-        return output;
     }
 
     @Override
-    public LinkedList<String> legalCaptures(XiangqiBoard xb, String currentPosition) {
-        return allLegalMoves(xb, currentPosition);
+    public void generateCaptures(XiangqiBoard xb, int square, MoveList moves) {
+        if(!(xb.getPiece(square) instanceof Horse)) throw new IllegalArgumentException("This isn\'t a horse!");
+        for(int i = 0; i < 4; i++) {
+            int leg = XiangqiBoard.shift(square, LEG_COL_SHIFTS[i], LEG_ROW_SHIFTS[i]);
+            if(leg == XiangqiBoard.NO_SQUARE || !xb.isEmptySquare(leg)) continue;
+            for(int j = 0; j < 2; j++) {
+                int shift = XiangqiBoard.shift(square, COL_SHIFTS[i][j], ROW_SHIFTS[i][j]);
+                if(shift != XiangqiBoard.NO_SQUARE) addCapture(xb, square, shift, moves);
+            }
+        }
     }
 
-    @Override
-    public String getCharRepresentation() {
-        return "H";
-    }
-    
     /**
-     * init
+     * What a horse is worth in the midgame and in the endgame, a little more in
+     * the endgame when fewer pieces block its legs
      */
-    {
-        try {
-            black = ImageIO.read(getClass().getResource("/images/bn.gif"));
-            red = ImageIO.read(getClass().getResource("/images/rn.gif"));
-        } catch (IOException ex) {
-            ex.printStackTrace();
-        }
-    }
-    
+    private static final int MIDGAME_VALUE = 400, ENDGAME_VALUE = 430;
+
     /**
-     * The images for the black and red pieces
+     * Horses want to cross the river and reach the squares beside the enemy
+     * fortress, from red's side
      */
-    private static BufferedImage black, red;
-    
+    private static final int[] MIDGAME_TABLE = {
+              4,   8,  16,  12,   4,  12,  16,   8,   4,
+              4,  10,  28,  16,   8,  16,  28,  10,   4,
+             12,  14,  16,  20,  18,  20,  16,  14,  12,
+              8,  24,  18,  24,  20,  24,  18,  24,   8,
+              6,  16,  14,  18,  16,  18,  14,  16,   6,
+              4,  12,  16,  14,  12,  14,  16,  12,   4,
+              2,   6,   8,   6,  10,   6,   8,   6,   2,
+              4,   2,   8,   8,   4,   8,   8,   2,   4,
+              0,   2,   4,   4,  -2,   4,   4,   2,   0,
+              0,  -4,   0,   0,   0,   0,   0,  -4,   0
+    };
+
     /**
-     * Draws this piece
-     * @param g2D the Graphics2D to draw on
-     * @param x the X coordinate of the image
-     * @param y the Y coordinate of the image
-     * @param width the width of the picture
-     * @param height the height of the picture
+     * In the endgame, horses want the center, where they reach the most
+     * squares, from red's side
      */
+    private static final int[] ENDGAME_TABLE = {
+              0,   4,   8,   8,   8,   8,   8,   4,   0,
+              4,   8,  12,  14,  14,  14,  12,   8,   4,
+              8,  12,  16,  18,  18,  18,  16,  12,   8,
+              8,  14,  18,  20,  20,  20,  18,  14,   8,
+              8,  14,  18,  20,  20,  20,  18,  14,   8,
+              8,  12,  16,  18,  18,  18,  16,  12,   8,
+              4,   8,  12,  14,  14,  14,  12,   8,   4,
+              2,   6,   8,  10,  10,  10,   8,   6,   2,
+              0,   4,   6,   6,   6,   6,   6,   4,   0,
+             -4,   0,   2,   2,   2,   2,   2,   0,  -4
+    };
+
     @Override
-    public void draw(Graphics2D g2D, int x, int y, int width, int height) {
-        if(isRed) {
-            g2D.drawImage(red, x, y, width, height, null);
-        } else {
-            g2D.drawImage(black, x, y, width, height, null);
-        }
+    public int getValue(int square, boolean endgame) {
+        return (endgame) ? ENDGAME_VALUE + ENDGAME_TABLE[square] : MIDGAME_VALUE + MIDGAME_TABLE[square];
     }
-    
-    /**
-     * The images for the black and red ghosts
-     */
-    private static BufferedImage blackGhost, redGhost;
-    
-    /**
-     * Draws a ghost of this image
-     * @param g2D the Graphics2D to draw on
-     * @param x the X coordinate of the image
-     * @param y the Y coordinate of the image
-     * @param width the width of the picture
-     * @param height the height of the picture
-     */
+
     @Override
-    public void drawGhost(Graphics2D g2D, int x, int y, int width, int height) {
-        if(isRed) {
-            g2D.drawImage(redGhost, x, y, width, height, null);
-        } else {
-            g2D.drawImage(blackGhost, x, y, width, height, null);
-        }
+    public int getType() {
+        return HORSE;
     }
-    
-    /**
-     * Gets this piece's image that is red or black
-     * @param isRed whether the image should be red or black
-     * @return the image that represents this piece
-     */
-    public static BufferedImage getImage(boolean isRed) {
-        return (isRed)?red:black;
+
+    @Override
+    public String getCharRepresentation() {
+        return "H";
     }
 }
\ No newline at end of file
@@ -0,0 +1,102 @@
+package offlinexiangqi;
+
+/**
+ * A class that packs and unpacks moves stored as ints<br>
+ * <br>
+ * The bits of a move are laid out as such:<br>
+ * 0-6: the square index moved from<br>
+ * 7-13: the square index moved to<br>
+ * 14-17: the code of the moved piece<br>
+ * 18-21: the code of the captured piece, 0 if none
+ * @author Jed Wang
+ */
+public final class Move {
+    /**
+     * Represents the lack of a move
+     */
+    public static final int NONE = 0;
+    
+    /**
+     * Where each part of a move is stored
+     */
+    private static final int TO_SHIFT = 7, MOVED_SHIFT = 14, 
+            CAPTURED_SHIFT = 18;
+    
+    /**
+     * Masks for a square index and a piece code
+     */
+    private static final int SQUARE_MASK = 0x7F, PIECE_MASK = 0xF;
+    
+    /**
+     * No instances
+     */
+    private Move() {
+    }
+    
+    /**
+     * Packs a move into an int
+     * @param from the square index moved from
+     * @param to the square index moved to
+     * @param moved the code of the moved piece
+     * @param captured the code of the captured piece, 0 if none
+     * @return the packed move
+     */
+    public static int create(int from, int to, int moved, int captured) {
+        return from | (to << TO_SHIFT) | (moved << MOVED_SHIFT) | (captured << CAPTURED_SHIFT);
+    }
+    
+    /**
+     * Determines from which square index a move is made
+     * @param move a packed move
+     * @return the square index moved from
+     */
+    public static int getFrom(int move) {
+        return move & SQUARE_MASK;
+    }
+    
+    /**
+     * Determines to which square index a move is made
+     * @param move a packed move
+     * @return the square index moved to
+     */
+    public static int getTo(int move) {
+        return (move >>> TO_SHIFT) & SQUARE_MASK;
+    }
+    
+    /**
+     * Determines which piece is moved
+     * @param move a packed move
+     * @return the code of the moved piece
+     */
+    public static int getMoved(int move) {
+        return (move >>> MOVED_SHIFT) & PIECE_MASK;
+    }
+    
+    /**
+     * Determines which piece is captured
+     * @param move a packed move
+     * @return the code of the captured piece, 0 if none
+     */
+    public static int getCaptured(int move) {
+        return (move >>> CAPTURED_SHIFT) & PIECE_MASK;
+    }
+    
+    /**
+     * Determines whether a move captures a piece
+     * @param move a packed move
+     * @return whether the move is a capture
+     */
+    public static boolean isCapture(int move) {
+        return getCaptured(move) != 0;
+    }
+    
+    /**
+     * Returns a readable form of a move, i.e. "h3-e3"
+     * @param move a packed move
+     * @return the move as a String
+     */
+    public static String toString(int move) {
+        if(move == NONE) return "none";
+        return XiangqiBoard.toSquare(getFrom(move)) + "-" + XiangqiBoard.toSquare(getTo(move));
+    }
+}
@@ -0,0 +1,95 @@
+package offlinexiangqi;
+
+/**
+ * A reusable, preallocated list of packed moves
+ * @author Jed Wang
+ * @see Move
+ */
+public class MoveList {
+    /**
+     * The most moves a list can hold.<br>
+     * No xiangqi position has nearly this many moves.
+     */
+    public static final int MAX_MOVES = 256;
+    
+    /**
+     * The packed moves
+     */
+    private final int[] moves;
+    
+    /**
+     * How many moves are in this list
+     */
+    private int size;
+    
+    /**
+     * Default constructor.
+     */
+    public MoveList() {
+        moves = new int[MAX_MOVES];
+        size = 0;
+    }
+    
+    /**
+     * Adds a move to the end of this list
+     * @param move a packed move
+     */
+    public void add(int move) {
+        moves[size++] = move;
+    }
+    
+    /**
+     * Returns a move in this list
+     * @param index the index of the move
+     * @return the packed move
+     */
+    public int get(int index) {
+        return moves[index];
+    }
+    
+    /**
+     * Replaces a move in this list
+     * @param index the index of the move
+     * @param move the new packed move
+     */
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+    
+    /**
+     * Determines how many moves are in this list
+     * @return the number of moves
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Cuts this list down to a number of moves
+     * @param size the number of moves to keep
+     */
+    public void truncate(int size) {
+        this.size = size;
+    }
+    
+    /**
+     * Empties this list
+     */
+    public void clear() {
+        size = 0;
+    }
+    
+    /**
+     * Determines whether this list contains a move from one square index to another
+     * @param from the square index moved from
+     * @param to the square index moved to
+     * @return whether this list contains such a move
+     */
+    public boolean contains(int from, int to) {
+        for(int i = 0; i < size; i++) {
+            if(Move.getFrom(moves[i]) == from && Move.getTo(moves[i]) == to) 
+                return true;
+        }
+        return false;
+    }
+}
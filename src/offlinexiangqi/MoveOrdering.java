@@ -0,0 +1,121 @@
+package offlinexiangqi;
+
+import java.util.Arrays;
+
+/**
+ * The tables a search learns move ordering from: history, killer moves
+ * and counter moves<br>
+ * <br>
+ * Each search thread has its own, so none of them needs locking.
+ * @author Jed Wang
+ */
+public class MoveOrdering {
+    /**
+     * The largest a history score can get, either way
+     */
+    public static final int HISTORY_MAX = 16384;
+    
+    /**
+     * How well quiet moves of each piece to each square have done
+     * [piece code][square index]
+     */
+    private final int[][] history = new int[16][XiangqiBoard.BOARD_SIZE];
+    
+    /**
+     * The two latest quiet moves that caused a cutoff at each ply
+     * [ply][slot]
+     */
+    private final int[][] killers = new int[Search.MAX_PLY][2];
+    
+    /**
+     * The quiet move that last caused a cutoff after each move
+     * [from * BOARD_SIZE + to of the previous move]
+     */
+    private final int[] counterMoves = new int[XiangqiBoard.BOARD_SIZE * XiangqiBoard.BOARD_SIZE];
+    
+    /**
+     * Forgets everything learned
+     */
+    public void clear() {
+        for(int[] h : history) {
+            Arrays.fill(h, 0);
+        }
+        for(int[] k : killers) {
+            Arrays.fill(k, Move.NONE);
+        }
+        Arrays.fill(counterMoves, Move.NONE);
+    }
+    
+    /**
+     * Halves every history score, so the next iteration's results count for more
+     */
+    public void age() {
+        for(int[] h : history) {
+            for(int i = 0; i < h.length; i++) {
+                h[i] /= 2;
+            }
+        }
+    }
+    
+    /**
+     * Returns the history score of a quiet move
+     * @param move a packed move
+     * @return the history score
+     */
+    public int getHistory(int move) {
+        return history[Move.getMoved(move)][Move.getTo(move)];
+    }
+    
+    /**
+     * Returns a killer move
+     * @param ply the ply
+     * @param slot 0 for the newest killer, 1 for the older one
+     * @return the packed killer move, or <code>Move.NONE</code>
+     */
+    public int getKiller(int ply, int slot) {
+        return killers[ply][slot];
+    }
+    
+    /**
+     * Returns the counter move of a move
+     * @param previous the packed move just made, or <code>Move.NONE</code>
+     * @return the packed counter move, or <code>Move.NONE</code>
+     */
+    public int getCounter(int previous) {
+        if(previous == Move.NONE) return Move.NONE;
+        return counterMoves[Move.getFrom(previous) * XiangqiBoard.BOARD_SIZE + Move.getTo(previous)];
+    }
+    
+    /**
+     * Learns from a quiet move causing a cutoff
+     * @param ply the ply of the cutoff
+     * @param depth the depth left at the cutoff
+     * @param move the packed move that caused it
+     * @param previous the packed move made before it, or <code>Move.NONE</code>
+     * @param tried the quiet moves searched before it without a cutoff
+     */
+    public void update(int ply, int depth, int move, int previous, MoveList tried) {
+        if(killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        if(previous != Move.NONE)
+            counterMoves[Move.getFrom(previous) * XiangqiBoard.BOARD_SIZE + Move.getTo(previous)] = move;
+        int bonus = Math.min(depth * depth, HISTORY_MAX / 4);
+        addHistory(move, bonus);
+        for(int i = 0; i < tried.size(); i++) {
+            addHistory(tried.get(i), -bonus);
+        }
+    }
+    
+    /**
+     * Moves a history score toward a bonus, slower the closer it is to <code>HISTORY_MAX</code>
+     * @param move a packed move
+     * @param bonus how much to add, or subtract if negative
+     */
+    private void addHistory(int move, int bonus) {
+        int[] h = history[Move.getMoved(move)];
+        int to = Move.getTo(move);
+        h[to] += bonus - h[to] * Math.abs(bonus) / HISTORY_MAX;
+    }
+}
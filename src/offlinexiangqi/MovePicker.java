@@ -0,0 +1,251 @@
+package offlinexiangqi;
+
+/**
+ * A class that hands out the moves of a position one at a time, best
+ * looking first, generating them only as they are needed<br>
+ * <br>
+ * The moves come in stages: the transposition table's move, captures by
+ * MVV-LVA, the killer and counter moves, the quiet moves by history, and
+ * last the captures that lose material by static exchange evaluation.
+ * A search that cuts off early never generates the later stages.<br>
+ * Moves are pseudo-legal; the caller still has to check for checks.
+ * @author Jed Wang
+ */
+public class MovePicker {
+    /**
+     * The stages, in the order they are gone through
+     */
+    private static final int TT_MOVE = 0, GENERATE_CAPTURES = 1, CAPTURES = 2,
+            KILLER_1 = 3, KILLER_2 = 4, COUNTER = 5, GENERATE_QUIETS = 6, QUIETS = 7, 
+            BAD_CAPTURES = 8, DONE = 9;
+    
+    /**
+     * The position the moves are of
+     */
+    private final XiangqiBoard xb;
+    
+    /**
+     * Where the killer moves, counter moves and history come from
+     */
+    private final MoveOrdering ordering;
+    
+    /**
+     * The generated moves of the current stage
+     */
+    private final MoveList moves = new MoveList();
+    
+    /**
+     * How good each generated move looks
+     */
+    private final int[] scores = new int[MoveList.MAX_MOVES];
+    
+    /**
+     * The captures put off because they lose material
+     */
+    private final MoveList badCaptures = new MoveList();
+    
+    /**
+     * Holds the moves of one piece while checking a move that wasn't generated
+     */
+    private final MoveList scratch = new MoveList();
+    
+    /**
+     * The current stage
+     */
+    private int stage;
+    
+    /**
+     * The index of the next move of the current stage
+     */
+    private int index;
+    
+    /**
+     * Whether only captures are handed out
+     */
+    private boolean capturesOnly;
+    
+    /**
+     * The moves tried before generating quiet moves
+     */
+    private int ttMove, killer1, killer2, counter;
+    
+    /**
+     * Creates a MovePicker
+     * @param xb the position to pick moves of, which is read whenever moves are generated
+     * @param ordering the move ordering tables of the search
+     */
+    public MovePicker(XiangqiBoard xb, MoveOrdering ordering) {
+        this.xb = xb;
+        this.ordering = ordering;
+    }
+    
+    /**
+     * Starts handing out every move of the current position
+     * @param ttMove the transposition table's move, or <code>Move.NONE</code>
+     * @param ply how many plies from the root the position is, for the killer moves
+     */
+    public void init(int ttMove, int ply) {
+        this.ttMove = ttMove;
+        killer1 = ordering.getKiller(ply, 0);
+        killer2 = ordering.getKiller(ply, 1);
+        counter = ordering.getCounter(xb.getLastMove());
+        capturesOnly = false;
+        stage = TT_MOVE;
+    }
+    
+    /**
+     * Starts handing out only the captures of the current position 
+     * that don't lose material
+     */
+    public void initCaptures() {
+        ttMove = killer1 = killer2 = counter = Move.NONE;
+        capturesOnly = true;
+        stage = GENERATE_CAPTURES;
+    }
+    
+    /**
+     * Returns the next move
+     * @return the next packed move, or <code>Move.NONE</code> if there are no more
+     */
+    public int next() {
+        while(true) {
+            switch(stage) {
+                case TT_MOVE:
+                    stage++;
+                    if(isPseudoLegal(ttMove)) return ttMove;
+                    break;
+                case GENERATE_CAPTURES:
+                    moves.clear();
+                    badCaptures.clear();
+                    xb.generateCaptures(moves);
+                    for(int i = 0; i < moves.size(); i++) {
+                        int move = moves.get(i);
+                        scores[i] = 16 * Evaluation.value(Move.getCaptured(move) & ~AbstractPiece.BLACK_CODE)
+                                - attackerCost(Move.getMoved(move) & ~AbstractPiece.BLACK_CODE);
+                    }
+                    index = 0;
+                    stage++;
+                    break;
+                case CAPTURES:
+                    while(index < moves.size()) {
+                        int move = pickBest(index++);
+                        if(move == ttMove) continue;
+                        if(!isLosing(move)) return move;
+                        if(!capturesOnly) badCaptures.add(move);
+                    }
+                    stage = (capturesOnly) ? DONE : KILLER_1;
+                    break;
+                case KILLER_1:
+                    stage++;
+                    if(killer1 != ttMove && isQuiet(killer1)) return killer1;
+                    break;
+                case KILLER_2:
+                    stage++;
+                    if(killer2 != ttMove && killer2 != killer1 && isQuiet(killer2)) return killer2;
+                    break;
+                case COUNTER:
+                    stage++;
+                    if(counter != ttMove && counter != killer1 && counter != killer2 && isQuiet(counter))
+                        return counter;
+                    break;
+                case GENERATE_QUIETS:
+                    moves.clear();
+                    xb.generateMoves(moves);
+                    int kept = 0;
+                    for(int i = 0; i < moves.size(); i++) {
+                        int move = moves.get(i);
+                        if(Move.isCapture(move) || move == ttMove || move == killer1
+                                || move == killer2 || move == counter) continue;
+                        moves.set(kept, move);
+                        scores[kept++] = ordering.getHistory(move);
+                    }
+                    moves.truncate(kept);
+                    index = 0;
+                    stage++;
+                    break;
+                case QUIETS:
+                    if(index < moves.size()) return pickBest(index++);
+                    index = 0;
+                    stage++;
+                    break;
+                case BAD_CAPTURES:
+                    if(index < badCaptures.size()) return badCaptures.get(index++);
+                    stage = DONE;
+                    break;
+                default:
+                    return Move.NONE;
+            }
+        }
+    }
+    
+    /**
+     * Returns how much to mark down a capture by its attacker, so the least
+     * valuable attacker comes first. The general, which can't be traded,
+     * comes last. Always less than the smallest gap between two victims.
+     * @param type the type of the capturing piece
+     * @return the markdown
+     */
+    private static int attackerCost(int type) {
+        if(type == AbstractPiece.GENERAL) return 2 * Evaluation.value(AbstractPiece.CHARIOT) / 16;
+        return Evaluation.value(type) / 16;
+    }
+    
+    /**
+     * Moves the best scored of the remaining moves to an index
+     * @param from the index to fill
+     * @return the packed move now at the index
+     */
+    private int pickBest(int from) {
+        int best = from;
+        for(int i = from + 1; i < moves.size(); i++) {
+            if(scores[i] > scores[best]) best = i;
+        }
+        int move = moves.get(best);
+        if(best != from) {
+            moves.set(best, moves.get(from));
+            moves.set(from, move);
+            int temp = scores[best];
+            scores[best] = scores[from];
+            scores[from] = temp;
+        }
+        return move;
+    }
+    
+    /**
+     * Determines whether a capture loses material once the other side 
+     * captures back. A piece taking one worth at least as much can't.
+     * @param move a packed capture
+     * @return whether its static exchange evaluation is negative
+     */
+    private boolean isLosing(int move) {
+        if(Evaluation.value(Move.getMoved(move) & ~AbstractPiece.BLACK_CODE)
+                <= Evaluation.value(Move.getCaptured(move) & ~AbstractPiece.BLACK_CODE)) return false;
+        return xb.see(move) < 0;
+    }
+    
+    /**
+     * Determines whether a move is a quiet move that can be made in the current position
+     * @param move a packed move
+     * @return whether it is a pseudo-legal quiet move
+     */
+    private boolean isQuiet(int move) {
+        return !Move.isCapture(move) && isPseudoLegal(move);
+    }
+    
+    /**
+     * Determines whether a move that wasn't generated here can be made in
+     * the current position, not checking for checks.<br>
+     * Moves from the transposition table or from other positions may not.
+     * @param move a packed move
+     * @return whether the move is pseudo-legal
+     */
+    private boolean isPseudoLegal(int move) {
+        if(move == Move.NONE) return false;
+        int from = Move.getFrom(move), to = Move.getTo(move), moved = Move.getMoved(move);
+        if(xb.getPieceCode(from) != moved || xb.getPieceCode(to) != Move.getCaptured(move)) return false;
+        if(((moved & AbstractPiece.BLACK_CODE) == 0) != xb.isRedToMove()) return false;
+        scratch.clear();
+        xb.getPiece(from).generateMoves(xb, from, scratch);
+        return scratch.contains(from, to);
+    }
+}
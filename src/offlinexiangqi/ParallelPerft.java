@@ -0,0 +1,202 @@
+package offlinexiangqi;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A perft that counts with many threads at once<br>
+ * <br>
+ * The first two plies are split into a task per line, and the tasks are
+ * run by a <code>ForkJoinPool</code>, so a thread that runs out of work
+ * steals from the others. Every task counts from its own copy of the
+ * board, and all of them share one <code>PerftTable</code>, so a subtree
+ * one thread has counted is looked up by the rest.
+ * @author Jed Wang
+ */
+public class ParallelPerft {
+    /**
+     * How many plies from the root are split into tasks
+     */
+    private static final int SPLIT_PLIES = 2;
+    
+    /**
+     * The position to count from
+     */
+    private final XiangqiBoard xb;
+    
+    /**
+     * How many threads to count with
+     */
+    private final int threads;
+    
+    /**
+     * The table every task shares, or null for none
+     */
+    private final PerftTable table;
+    
+    /**
+     * Whether the last ply is counted without making its moves
+     */
+    private boolean bulkCounting = true;
+    
+    /**
+     * Creates a perft using every core, without a table
+     * @param xb the position to count from, which is copied
+     */
+    public ParallelPerft(XiangqiBoard xb) {
+        this(xb, Runtime.getRuntime().availableProcessors(), 0);
+    }
+    
+    /**
+     * Creates a perft
+     * @param xb the position to count from, which is copied
+     * @param threads how many threads to count with
+     * @param megabytes the size of the shared table, 0 for none
+     */
+    public ParallelPerft(XiangqiBoard xb, int threads, int megabytes) {
+        if(threads < 1) throw new IllegalArgumentException("There must be at least one thread");
+        this.xb = new XiangqiBoard(xb);
+        this.threads = threads;
+        table = (megabytes > 0) ? new PerftTable(megabytes) : null;
+    }
+    
+    /**
+     * Sets whether the last ply is counted without making its moves
+     * @param bulkCounting whether to count in bulk
+     */
+    public void setBulkCounting(boolean bulkCounting) {
+        this.bulkCounting = bulkCounting;
+    }
+    
+    /**
+     * Counts the positions a number of moves deep
+     * @param depth how many moves deep, from 0 to <code>Search.MAX_PLY - 1</code>
+     * @return the number of positions
+     */
+    public long perft(int depth) {
+        if(depth < 0 || depth >= Search.MAX_PLY) 
+            throw new IllegalArgumentException("Depth out of range: " + depth);
+        return run(new CountTask(xb, depth, SPLIT_PLIES));
+    }
+    
+    /**
+     * Counts the positions a number of moves deep after every legal move
+     * @param depth how many moves deep, counting the first move, at least 1
+     * @return the count after every packed move, in generation order
+     */
+    public Map<Integer, Long> divide(int depth) {
+        if(depth < 1 || depth >= Search.MAX_PLY) 
+            throw new IllegalArgumentException("Depth out of range: " + depth);
+        MoveList moves = new MoveList();
+        xb.generateLegalMoves(moves);
+        CountTask[] tasks = new CountTask[moves.size()];
+        for(int i = 0; i < tasks.length; i++) {
+            XiangqiBoard child = new XiangqiBoard(xb);
+            child.makeMove(moves.get(i));
+            tasks[i] = new CountTask(child, depth - 1, SPLIT_PLIES - 1);
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            Map<Integer, Long> output = new LinkedHashMap<>();
+            for(int i = 0; i < tasks.length; i++) {
+                pool.execute(tasks[i]);
+            }
+            for(int i = 0; i < tasks.length; i++) {
+                output.put(moves.get(i), tasks[i].join());
+            }
+            return output;
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    /**
+     * Runs a task on a pool of its own
+     * @param task the task
+     * @return the count
+     */
+    private long run(CountTask task) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(task);
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    /**
+     * Returns how many threads this counts with
+     * @return the thread count
+     */
+    public int getThreadCount() {
+        return threads;
+    }
+    
+    /**
+     * A task that counts from a position, splitting into a task per move
+     * while it is near the root
+     */
+    private class CountTask extends RecursiveTask<Long> {
+        /**
+         * Tasks are never serialized, but RecursiveTask is Serializable
+         */
+        private static final long serialVersionUID = 1L;
+        
+        /**
+         * The position, which belongs to this task alone
+         */
+        private final XiangqiBoard position;
+        
+        /**
+         * How many moves deep to count
+         */
+        private final int depth;
+        
+        /**
+         * How many more plies to split
+         */
+        private final int splitPlies;
+        
+        /**
+         * Creates a task
+         * @param position the position, which the task takes over
+         * @param depth how many moves deep to count
+         * @param splitPlies how many more plies to split
+         */
+        CountTask(XiangqiBoard position, int depth, int splitPlies) {
+            this.position = position;
+            this.depth = depth;
+            this.splitPlies = splitPlies;
+        }
+        
+        /**
+         * Counts, in tasks of its own or on this thread
+         * @return the number of positions
+         */
+        @Override
+        protected Long compute() {
+            // splitting the last ply would make a task per leaf
+            if(splitPlies <= 0 || depth <= 2) {
+                Perft p = new Perft(position, table);
+                p.setBulkCounting(bulkCounting);
+                return p.perft(depth);
+            }
+            MoveList moves = new MoveList();
+            position.generateLegalMoves(moves);
+            CountTask[] children = new CountTask[moves.size()];
+            for(int i = 0; i < children.length; i++) {
+                XiangqiBoard child = new XiangqiBoard(position);
+                child.makeMove(moves.get(i));
+                children[i] = new CountTask(child, depth - 1, splitPlies - 1);
+            }
+            invokeAll(children);
+            long output = 0;
+            for(CountTask child : children) {
+                output += child.join();
+            }
+            return output;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package offlinexiangqi;
+
+/**
+ * A class that searches with many threads at once (lazy SMP)<br>
+ * <br>
+ * Every thread searches the same root from its own copy of the board and
+ * shares one transposition table, so what one thread finds the others
+ * can cut off with. Every other helper searches one ply deeper, so the
+ * threads do not all walk the same tree in the same order.<br>
+ * The calling thread is the main thread, whose limits end the search.
+ * @author Jed Wang
+ */
+public class ParallelSearch {
+    /**
+     * The searches, one per thread. Index 0 is the main thread.
+     */
+    private final Search[] searches;
+    
+    /**
+     * The transposition table every search shares
+     */
+    private final TranspositionTable tt;
+    
+    /**
+     * Creates a search using every core
+     * @param xb the position to search, which is copied
+     */
+    public ParallelSearch(XiangqiBoard xb) {
+        this(xb, Runtime.getRuntime().availableProcessors(), TranspositionTable.DEFAULT_SIZE);
+    }
+    
+    /**
+     * Creates a search
+     * @param xb the position to search, which is copied
+     * @param threads how many threads to search with
+     * @param megabytes the size of the shared transposition table
+     */
+    public ParallelSearch(XiangqiBoard xb, int threads, int megabytes) {
+        if(threads < 1) throw new IllegalArgumentException("There must be at least one thread");
+        tt = new TranspositionTable(megabytes);
+        searches = new Search[threads];
+        for(int i = 0; i < threads; i++) {
+            searches[i] = new Search(xb, tt);
+            searches[i].setDepthOffset(i & 1);
+            searches[i].setAgesTable(false);
+        }
+    }
+    
+    /**
+     * Sets how deep the main thread searches
+     * @param maxDepth the depth in plies
+     */
+    public void setMaxDepth(int maxDepth) {
+        searches[0].setMaxDepth(maxDepth);
+    }
+    
+    /**
+     * Sets how many nodes the main thread searches at most
+     * @param nodeLimit the node limit
+     */
+    public void setNodeLimit(long nodeLimit) {
+        searches[0].setNodeLimit(nodeLimit);
+    }
+    
+    /**
+     * Sets how long to search
+     * @param timeLimit the time limit in milliseconds, 0 for none
+     */
+    public void setTimeLimit(long timeLimit) {
+        searches[0].setTimeLimit(timeLimit);
+    }
+    
+    /**
+     * Sets which pruning every thread does
+     * @param options the pruning options
+     */
+    public void setOptions(SearchOptions options) {
+        for(Search s : searches) {
+            s.setOptions(options);
+        }
+    }
+    
+    /**
+     * Tells a running search to stop
+     */
+    public void stop() {
+        searches[0].stop();
+    }
+    
+    /**
+     * Searches with every thread until the main thread is done
+     * @return the result of the main thread
+     */
+    public SearchResult search() {
+        // once for every thread, so what each stores is of this search
+        tt.newSearch();
+        Thread[] helpers = new Thread[searches.length - 1];
+        for(int i = 0; i < helpers.length; i++) {
+            final Search helper = searches[i + 1];
+            helpers[i] = new Thread("Search helper " + (i + 1)) {
+                @Override
+                public void run() {
+                    helper.search();
+                }
+            };
+            helpers[i].setDaemon(true);
+            helpers[i].start();
+        }
+        SearchResult result = searches[0].search();
+        for(int i = 1; i < searches.length; i++) {
+            searches[i].stop();
+        }
+        for(Thread helper : helpers) {
+            try {
+                helper.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns how many threads this searches with
+     * @return the thread count
+     */
+    public int getThreadCount() {
+        return searches.length;
+    }
+    
+    /**
+     * Returns how many nodes each thread searched
+     * @return the node counts, the main thread first
+     */
+    public long[] getNodeCounts() {
+        long[] output = new long[searches.length];
+        for(int i = 0; i < searches.length; i++) {
+            output[i] = searches[i].getNodes();
+        }
+        return output;
+    }
+    
+    /**
+     * Returns how many nodes every thread searched together
+     * @return the total node count
+     */
+    public long getNodes() {
+        long output = 0;
+        for(Search s : searches) {
+            output += s.getNodes();
+        }
+        return output;
+    }
+    
+    /**
+     * Returns the transposition table every thread shares
+     * @return the transposition table
+     */
+    public TranspositionTable getTranspositionTable() {
+        return tt;
+    }
+}
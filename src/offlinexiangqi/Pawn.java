@@ -1,132 +1,116 @@
 package offlinexiangqi;
 
-import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.util.LinkedList;
-import javax.imageio.ImageIO;
-
 /**
  * A class that represents a Pawn
  * @author Jed Wang
  */
 public class Pawn extends AbstractPiece {
 
+    /**
+     * The red and black Pawns
+     */
+    public static final Pawn RED = new Pawn(true), BLACK = new Pawn(false);
+    
     /**
      * A constructor that creates a new Pawn
      * @param isRed whether this Pawn is red
      */
-    public Pawn(boolean isRed) {
+    private Pawn(boolean isRed) {
         super(isRed);
     }
+    
+    /**
+     * Returns the shared Pawn of a color
+     * @param isRed whether the Pawn is red
+     * @return the red or black Pawn
+     */
+    public static Pawn get(boolean isRed) {
+        return (isRed) ? RED : BLACK;
+    }
 
     @Override
-    public LinkedList<String> allLegalMoves(XiangqiBoard xb, String currentPosition) {
-        if(!XiangqiBoard.isValidSquare(currentPosition)) throw new IllegalArgumentException("Invalid square");
-        if(!(xb.getPiece(currentPosition).getCharRepresentation().equals("P"))) throw new IllegalArgumentException("This isn\'t a pawn!");
-        LinkedList<String> output = new LinkedList<>();
-        try {
-            String forward = (isRed)
-                    ? XiangqiBoard.shiftSquare(currentPosition, 0, -1)
-                    : XiangqiBoard.shiftSquare(currentPosition, 0, 1);
-            if(xb.isEmptySquare(forward))
-                output.add(forward);
-            else if(xb.getPiece(forward).isRed ^ isRed)
-                output.add(forward);
-        } catch (IllegalArgumentException iae) {
+    public void generateMoves(XiangqiBoard xb, int square, MoveList moves) {
+        if(!(xb.getPiece(square) instanceof Pawn)) throw new IllegalArgumentException("This isn\'t a pawn!");
+        int forward = XiangqiBoard.shift(square, 0, (isRed) ? -1 : 1);
+        if(forward != XiangqiBoard.NO_SQUARE) {
+            if(xb.isEmptySquare(forward) || (xb.getPiece(forward).isRed ^ isRed))
+                addMove(xb, square, forward, moves);
         }
-        if(!XiangqiBoard.behindRiver(currentPosition, isRed)) {
-            String temp;
-            if(XiangqiBoard.isValidShift(currentPosition, 1, 0)) {
-                temp = XiangqiBoard.shiftSquare(currentPosition, 1, 0);
-                if(xb.isEmptySquare(temp))
-                    output.add(temp);
-                else if(xb.getPiece(temp).isRed ^ isRed)
-                    output.add(temp);
-            }
-            if(XiangqiBoard.isValidShift(currentPosition, -1, 0)) {
-                temp = XiangqiBoard.shiftSquare(currentPosition, -1, 0);
-                if(xb.isEmptySquare(temp))
-                    output.add(temp);
-                else if(xb.getPiece(temp).isRed ^ isRed)
-                    output.add(temp);
+        if(!XiangqiBoard.behindRiver(square, isRed)) {
+            for(int colShift = -1; colShift <= 1; colShift += 2) {
+                int temp = XiangqiBoard.shift(square, colShift, 0);
+                if(temp == XiangqiBoard.NO_SQUARE) continue;
+                if(xb.isEmptySquare(temp) || (xb.getPiece(temp).isRed ^ isRed))
+                    addMove(xb, square, temp, moves);
             }
         }
-        return output;
     }
 
     @Override
-    public LinkedList<String> legalCaptures(XiangqiBoard xb, String currentPosition) {
-        return allLegalMoves(xb, currentPosition);
+    public void generateCaptures(XiangqiBoard xb, int square, MoveList moves) {
+        if(!(xb.getPiece(square) instanceof Pawn)) throw new IllegalArgumentException("This isn\'t a pawn!");
+        int forward = XiangqiBoard.shift(square, 0, (isRed) ? -1 : 1);
+        if(forward != XiangqiBoard.NO_SQUARE) addCapture(xb, square, forward, moves);
+        if(!XiangqiBoard.behindRiver(square, isRed)) {
+            for(int colShift = -1; colShift <= 1; colShift += 2) {
+                int temp = XiangqiBoard.shift(square, colShift, 0);
+                if(temp != XiangqiBoard.NO_SQUARE) addCapture(xb, square, temp, moves);
+            }
+        }
     }
 
-    @Override
-    public String getCharRepresentation() {
-        return "P";
-    }
-    
     /**
-     * init
+     * What a pawn is worth in the midgame and in the endgame, more in the
+     * endgame when it can reach the fortress
      */
-    {
-        try {
-            black = ImageIO.read(getClass().getResource("/images/bp.gif"));
-            red = ImageIO.read(getClass().getResource("/images/rp.gif"));
-        } catch (IOException ex) {
-            ex.printStackTrace();
-        }
-    }
-    
+    private static final int MIDGAME_VALUE = 100, ENDGAME_VALUE = 130;
+
     /**
-     * The images for the black and red pieces
+     * Pawns are worth more across the river, and most near the enemy fortress,
+     * from red's side
      */
-    private static BufferedImage black, red;
-    
+    private static final int[] MIDGAME_TABLE = {
+              0,   3,   6,   9,  12,   9,   6,   3,   0,
+             18,  36,  56,  80, 120,  80,  56,  36,  18,
+             14,  26,  42,  60,  80,  60,  42,  26,  14,
+             10,  20,  30,  34,  40,  34,  30,  20,  10,
+              6,  12,  18,  18,  20,  18,  18,  12,   6,
+              2,   0,   8,   0,   8,   0,   8,   0,   2,
+              0,   0,  -2,   0,   4,   0,  -2,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0
+    };
+
     /**
-     * Draws this piece
-     * @param g2D the Graphics2D to draw on
-     * @param x the X coordinate of the image
-     * @param y the Y coordinate of the image
-     * @param width the width of the picture
-     * @param height the height of the picture
+     * In the endgame, a pawn next to the enemy fortress is worth the most, and
+     * one that has reached the last rank much less, from red's side
      */
+    private static final int[] ENDGAME_TABLE = {
+              0,  10,  20,  30,  40,  30,  20,  10,   0,
+             30,  50,  70,  90, 100,  90,  70,  50,  30,
+             30,  50,  60,  80,  90,  80,  60,  50,  30,
+             25,  40,  50,  60,  70,  60,  50,  40,  25,
+             20,  30,  40,  50,  50,  50,  40,  30,  20,
+              0,   0,   5,   0,  10,   0,   5,   0,   0,
+              0,   0,   0,   0,   5,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,   0
+    };
+
     @Override
-    public void draw(Graphics2D g2D, int x, int y, int width, int height) {
-        if(isRed) {
-            g2D.drawImage(red, x, y, width, height, null);
-        } else {
-            g2D.drawImage(black, x, y, width, height, null);
-        }
+    public int getValue(int square, boolean endgame) {
+        return (endgame) ? ENDGAME_VALUE + ENDGAME_TABLE[square] : MIDGAME_VALUE + MIDGAME_TABLE[square];
     }
-    
-    /**
-     * The images for the black and red ghosts
-     */
-    private static BufferedImage blackGhost, redGhost;
-    
-    /**
-     * Draws a ghost of this image
-     * @param g2D the Graphics2D to draw on
-     * @param x the X coordinate of the image
-     * @param y the Y coordinate of the image
-     * @param width the width of the picture
-     * @param height the height of the picture
-     */
+
     @Override
-    public void drawGhost(Graphics2D g2D, int x, int y, int width, int height) {
-        if(isRed) {
-            g2D.drawImage(redGhost, x, y, width, height, null);
-        } else {
-            g2D.drawImage(blackGhost, x, y, width, height, null);
-        }
+    public int getType() {
+        return PAWN;
     }
-    
-    /**
-     * Gets this piece's image that is red or black
-     * @param isRed whether the image should be red or black
-     * @return the image that represents this piece
-     */
-    public static BufferedImage getImage(boolean isRed) {
-        return (isRed)?red:black;
+
+    @Override
+    public String getCharRepresentation() {
+        return "P";
     }
 }
\ No newline at end of file
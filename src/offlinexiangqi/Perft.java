@@ -0,0 +1,293 @@
+package offlinexiangqi;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts the positions a number of moves deep (perft), to check move
+ * generation against known counts and to time it<br>
+ * <br>
+ * From the command line:<br>
+ * <code>java offlinexiangqi.Perft [-divide] [-nobulk] [-hash MB] [-threads N] [-bitboard] depth [FEN]</code><br>
+ * Without a FEN, the reference positions are counted to the depth and
+ * checked against their known counts. The counting is done by
+ * <code>ParallelPerft</code>, on one thread unless told otherwise.<br>
+ * <code>-bitboard</code> counts on a <code>BitboardPosition</code> instead,
+ * on one thread without a table, to check its move generation.
+ * @author Jed Wang
+ */
+public class Perft {
+    /**
+     * Positions with known perft counts, in FEN
+     */
+    private static final String[] REFERENCE_FENS = {
+        "rnbakabnr/9/1c5c1/p1p1p1p1p/9/9/P1P1P1P1P/1C5C1/9/RNBAKABNR w",
+        "r1ba1a3/4kn3/2n1b4/pNp1p1p1p/4c4/6P2/P1P2R2P/1CcC5/9/2BAKAB2 w",
+        "1cbak4/9/n2a5/2p1p3p/5cp2/2n2N3/6PCP/3AB4/2C6/3A1K1N1 w"
+    };
+    
+    /**
+     * The counts of the reference positions [position][depth - 1]
+     */
+    private static final long[][] REFERENCE_COUNTS = {
+        {44, 1920, 79666, 3290240, 133312995},
+        {38, 1128, 43929, 1339047, 53112976},
+        {7, 281, 8620, 326201, 10369923}
+    };
+    
+    /**
+     * The position counted from, which is changed while counting and put back after
+     */
+    private final XiangqiBoard xb;
+    
+    /**
+     * The counts already known, or null to count everything
+     */
+    private final PerftTable table;
+    
+    /**
+     * A move list for every ply, made the first time the ply is reached,
+     * so counting allocates nothing after that
+     */
+    private final MoveList[] moveLists = new MoveList[Search.MAX_PLY];
+    
+    /**
+     * Whether the last ply is counted by the size of its move list instead
+     * of making each move
+     */
+    private boolean bulkCounting = true;
+    
+    /**
+     * Creates a perft without a table
+     * @param xb the position to count from, which is not copied
+     */
+    public Perft(XiangqiBoard xb) {
+        this(xb, null);
+    }
+    
+    /**
+     * Creates a perft
+     * @param xb the position to count from, which is not copied
+     * @param table the table of known counts, or null for none
+     */
+    public Perft(XiangqiBoard xb, PerftTable table) {
+        this.xb = xb;
+        this.table = table;
+    }
+    
+    /**
+     * Sets whether the last ply is counted without making its moves
+     * @param bulkCounting whether to count in bulk
+     */
+    public void setBulkCounting(boolean bulkCounting) {
+        this.bulkCounting = bulkCounting;
+    }
+    
+    /**
+     * Counts the positions a number of moves deep
+     * @param depth how many moves deep, from 0 to <code>Search.MAX_PLY - 1</code>
+     * @return the number of positions
+     */
+    public long perft(int depth) {
+        if(depth < 0 || depth >= Search.MAX_PLY) 
+            throw new IllegalArgumentException("Depth out of range: " + depth);
+        return count(depth);
+    }
+    
+    /**
+     * Counts the positions a number of moves deep after every legal move
+     * @param depth how many moves deep, counting the first move, at least 1
+     * @return the count after every packed move, in generation order
+     */
+    public Map<Integer, Long> divide(int depth) {
+        if(depth < 1 || depth >= Search.MAX_PLY) 
+            throw new IllegalArgumentException("Depth out of range: " + depth);
+        MoveList moves = new MoveList();
+        xb.generateLegalMoves(moves);
+        Map<Integer, Long> output = new LinkedHashMap<>();
+        for(int i = 0; i < moves.size(); i++) {
+            xb.makeMove(moves.get(i));
+            output.put(moves.get(i), count(depth - 1));
+            xb.unmakeMove();
+        }
+        return output;
+    }
+    
+    /**
+     * Counts the positions a number of moves deep
+     * @param depth how many moves deep
+     * @return the number of positions
+     */
+    private long count(int depth) {
+        if(depth == 0) return 1;
+        long hash = xb.hash();
+        // a known count saves generating the moves at all
+        if(table != null && depth > 1) {
+            long known = table.probe(hash, depth);
+            if(known >= 0) return known;
+        }
+        MoveList moves = moveLists[depth];
+        if(moves == null) moves = moveLists[depth] = new MoveList();
+        moves.clear();
+        xb.generateLegalMoves(moves);
+        if(depth == 1 && bulkCounting) return moves.size();
+        
+        long output = 0;
+        for(int i = 0; i < moves.size(); i++) {
+            xb.makeMove(moves.get(i));
+            output += count(depth - 1);
+            xb.unmakeMove();
+        }
+        if(table != null && depth > 1) table.store(hash, depth, output);
+        return output;
+    }
+    
+    /**
+     * Counts the positions a number of moves deep on a bitboard position
+     * @param bp the position to count from, which is changed while counting and put back after
+     * @param depth how many moves deep, from 0 to <code>Search.MAX_PLY - 1</code>
+     * @param bulkCounting whether the last ply is counted without making its moves
+     * @return the number of positions
+     */
+    public static long perft(BitboardPosition bp, int depth, boolean bulkCounting) {
+        if(depth < 0 || depth >= Search.MAX_PLY) 
+            throw new IllegalArgumentException("Depth out of range: " + depth);
+        MoveList[] moveLists = new MoveList[depth + 1];
+        for(int i = 1; i <= depth; i++) {
+            moveLists[i] = new MoveList();
+        }
+        return count(bp, depth, moveLists, bulkCounting);
+    }
+    
+    /**
+     * Counts the positions a number of moves deep on a bitboard position
+     * @param bp the position
+     * @param depth how many moves deep
+     * @param moveLists a move list for every ply
+     * @param bulkCounting whether to count the last ply in bulk
+     * @return the number of positions
+     */
+    private static long count(BitboardPosition bp, int depth, MoveList[] moveLists, boolean bulkCounting) {
+        if(depth == 0) return 1;
+        MoveList moves = moveLists[depth];
+        moves.clear();
+        bp.generateLegalMoves(moves);
+        if(depth == 1 && bulkCounting) return moves.size();
+        long output = 0;
+        for(int i = 0; i < moves.size(); i++) {
+            bp.makeMove(moves.get(i));
+            output += count(bp, depth - 1, moveLists, bulkCounting);
+            bp.unmakeMove();
+        }
+        return output;
+    }
+    
+    /**
+     * Counts from the command line, see the class description
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        boolean divide = false, bulk = true, bitboard = false;
+        int megabytes = 0, threads = 1, depth = -1;
+        String fen = null;
+        try {
+            for(int i = 0; i < args.length; i++) {
+                switch(args[i]) {
+                    case "-divide":
+                        divide = true;
+                        break;
+                    case "-nobulk":
+                        bulk = false;
+                        break;
+                    case "-hash":
+                        megabytes = Integer.parseInt(args[++i]);
+                        break;
+                    case "-threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "-bitboard":
+                        bitboard = true;
+                        break;
+                    default:
+                        if(depth < 0) depth = Integer.parseInt(args[i]);
+                        else fen = (fen == null) ? args[i] : fen + " " + args[i];
+                }
+            }
+            if(depth < 0) throw new IllegalArgumentException("No depth given");
+            if(threads < 1) throw new IllegalArgumentException("There must be at least one thread");
+            if(bitboard && (divide || threads > 1 || megabytes > 0))
+                throw new IllegalArgumentException("-bitboard counts on one thread, without -divide or -hash");
+        } catch(RuntimeException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println("Usage: java offlinexiangqi.Perft [-divide] [-nobulk] [-hash MB] [-threads N] [-bitboard] depth [FEN]");
+            System.exit(2);
+            return;
+        }
+        
+        if(fen != null) {
+            XiangqiBoard xb = new XiangqiBoard(fen);
+            System.out.println(xb.toFEN());
+            if(bitboard) {
+                BitboardPosition bp = new BitboardPosition(xb);
+                for(int d = 1; d <= depth; d++) {
+                    long start = System.nanoTime(), nodes = perft(bp, d, bulk);
+                    report(d, nodes, System.nanoTime() - start, null);
+                }
+                return;
+            }
+            ParallelPerft p = new ParallelPerft(xb, threads, megabytes);
+            p.setBulkCounting(bulk);
+            if(divide) {
+                long start = System.nanoTime(), total = 0;
+                for(Map.Entry<Integer, Long> e : p.divide(depth).entrySet()) {
+                    System.out.println(Move.toString(e.getKey()) + ": " + e.getValue());
+                    total += e.getValue();
+                }
+                report(depth, total, System.nanoTime() - start, null);
+            } else {
+                for(int d = 1; d <= depth; d++) {
+                    long start = System.nanoTime(), nodes = p.perft(d);
+                    report(d, nodes, System.nanoTime() - start, null);
+                }
+            }
+            return;
+        }
+        
+        boolean passed = true;
+        for(int i = 0; i < REFERENCE_FENS.length; i++) {
+            XiangqiBoard xb = new XiangqiBoard(REFERENCE_FENS[i]);
+            ParallelPerft p = null;
+            BitboardPosition bp = null;
+            if(bitboard) {
+                bp = new BitboardPosition(xb);
+            } else {
+                p = new ParallelPerft(xb, threads, megabytes);
+                p.setBulkCounting(bulk);
+            }
+            System.out.println(REFERENCE_FENS[i]);
+            for(int d = 1; d <= Math.min(depth, REFERENCE_COUNTS[i].length); d++) {
+                long start = System.nanoTime(), 
+                        nodes = (bitboard) ? perft(bp, d, bulk) : p.perft(d);
+                report(d, nodes, System.nanoTime() - start, REFERENCE_COUNTS[i][d - 1]);
+                passed &= nodes == REFERENCE_COUNTS[i][d - 1];
+            }
+        }
+        System.out.println((passed) ? "All counts match" : "COUNTS DIFFER");
+        if(!passed) System.exit(1);
+    }
+    
+    /**
+     * Prints one count with its time and speed
+     * @param depth the depth counted to
+     * @param nodes the count
+     * @param nanos how long counting took in nanoseconds
+     * @param expected the known count, or null if there is none
+     */
+    private static void report(int depth, long nodes, long nanos, Long expected) {
+        long millis = nanos / 1000000, nps = (nanos == 0) ? 0 : nodes * 1000000000L / nanos;
+        String line = "depth " + depth + " nodes " + nodes + " time " + millis + " ms nps " + nps;
+        if(expected != null) 
+            line += (nodes == expected) ? " ok" : " expected " + expected;
+        System.out.println(line);
+    }
+}
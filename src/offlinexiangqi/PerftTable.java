@@ -0,0 +1,76 @@
+package offlinexiangqi;
+
+/**
+ * A fixed-size table of perft counts, shared without locks<br>
+ * <br>
+ * Each entry is two longs: the key of a position and depth XORed with its
+ * count, then the count. As in <code>TranspositionTable</code>, an entry torn
+ * by two threads writing at once reads as a miss, never as a wrong count.
+ * Entries are always replaced.
+ * @author Jed Wang
+ */
+public class PerftTable {
+    /**
+     * Mixed into the hash once per ply of depth, so one position's counts
+     * at different depths get different keys
+     */
+    private static final long DEPTH_KEY = 0x9E3779B97F4A7C15L;
+    
+    /**
+     * The entries, two longs each
+     */
+    private final long[] table;
+    
+    /**
+     * Selects the entry of a key
+     */
+    private final int mask;
+    
+    /**
+     * Creates a table
+     * @param megabytes about how large the table should be, rounded down to a power of two
+     */
+    public PerftTable(int megabytes) {
+        if(megabytes < 1) throw new IllegalArgumentException("Size must be at least 1 MB");
+        long entries = Long.highestOneBit(((long) megabytes << 20) / 16);
+        // a Java array holds a little under 2^31 longs
+        entries = Math.min(entries, 1L << 29);
+        table = new long[(int) entries * 2];
+        mask = (int) entries - 1;
+    }
+    
+    /**
+     * Looks up the count of a position
+     * @param hash the Zobrist hash of the position
+     * @param depth the depth counted to
+     * @return the count, or -1 if it isn't in the table
+     */
+    public long probe(long hash, int depth) {
+        long key = hash ^ (depth * DEPTH_KEY);
+        int index = ((int) key & mask) * 2;
+        long count = table[index + 1];
+        if((table[index] ^ count) == key && count != 0) return count;
+        return -1;
+    }
+    
+    /**
+     * Stores the count of a position
+     * @param hash the Zobrist hash of the position
+     * @param depth the depth counted to
+     * @param count the count
+     */
+    public void store(long hash, int depth, long count) {
+        long key = hash ^ (depth * DEPTH_KEY);
+        int index = ((int) key & mask) * 2;
+        table[index] = key ^ count;
+        table[index + 1] = count;
+    }
+    
+    /**
+     * Returns how large this table is
+     * @return the size in bytes
+     */
+    public long getSize() {
+        return (long) table.length * 8;
+    }
+}
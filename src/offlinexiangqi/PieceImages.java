@@ -0,0 +1,187 @@
+package offlinexiangqi;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.RescaleOp;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+/**
+ * Draws pieces<br>
+ * The images of all of the pieces are loaded once, when this class is first used.<br>
+ * <br>
+ * Pieces are drawn from an atlas: one image holding every piece already
+ * scaled to the size drawn at and in the screen's format, above a row of
+ * their ghosts. Drawing a piece is then a plain copy. The atlas is made
+ * again only when pieces are drawn at another size or onto another screen.
+ * Drawing is meant for the event dispatch thread only.
+ * @author Jed Wang
+ */
+public final class PieceImages {
+    /**
+     * The images of every piece, indexed by piece code
+     * @see AbstractPiece#getCode() 
+     */
+    private static final BufferedImage[] images = new BufferedImage[16];
+    
+    /**
+     * The number of pieces in a row of the atlas, 7 types of each color
+     */
+    private static final int ATLAS_COLUMNS = 14;
+    
+    /**
+     * The atlas: every piece in the first row, their ghosts in the second
+     */
+    private static BufferedImage atlas;
+    
+    /**
+     * The size of each piece in the atlas
+     */
+    private static int atlasWidth, atlasHeight;
+    
+    /**
+     * The graphics configuration the atlas is compatible with
+     */
+    private static GraphicsConfiguration atlasConfig;
+    
+    /**
+     * The letters used in the image names of each piece type, indexed by type
+     */
+    private static final String IMAGE_LETTERS = " kabnrcp";
+    
+    /**
+     * The ghostifier
+     */
+    private static RescaleOp rop;
+    
+    /**
+     * static init
+     */
+    static {
+        float[] scales = { 1f, 1f, 1f, 0.3f };
+        float[] offsets = new float[4];
+        rop = new RescaleOp(scales, offsets, null);
+        
+        for(int type = AbstractPiece.GENERAL; type <= AbstractPiece.PAWN; type++) {
+            try {
+                images[type] = ImageIO.read(PieceImages.class.getResource(
+                        "/images/r" + IMAGE_LETTERS.charAt(type) + ".gif"));
+                images[type | AbstractPiece.BLACK_CODE] = ImageIO.read(PieceImages.class.getResource(
+                        "/images/b" + IMAGE_LETTERS.charAt(type) + ".gif"));
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+    
+    /**
+     * No instances
+     */
+    private PieceImages() {
+    }
+    
+    /**
+     * Draws a piece
+     * @param g2D the Graphics2D to draw on
+     * @param ap the piece to draw
+     * @param x the X coordinate of the image
+     * @param y the Y coordinate of the image
+     * @param width the width of the picture
+     * @param height the height of the picture
+     */
+    public static void draw(Graphics2D g2D, AbstractPiece ap, int x, int y, int width, int height) {
+        drawFromAtlas(g2D, ap, 0, x, y, width, height);
+    }
+    
+    /**
+     * Draws a ghost of a piece
+     * @param g2D the Graphics2D to draw on
+     * @param ap the piece to draw
+     * @param x the X coordinate of the image
+     * @param y the Y coordinate of the image
+     * @param width the width of the picture
+     * @param height the height of the picture
+     */
+    public static void drawGhost(Graphics2D g2D, AbstractPiece ap, int x, int y, int width, int height) {
+        drawFromAtlas(g2D, ap, 1, x, y, width, height);
+    }
+    
+    /**
+     * Copies a piece out of the atlas, making the atlas first if it isn't
+     * of this size or for this screen
+     * @param g2D the Graphics2D to draw on
+     * @param ap the piece to draw
+     * @param row 0 for the piece, 1 for its ghost
+     * @param x the X coordinate of the image
+     * @param y the Y coordinate of the image
+     * @param width the width of the picture
+     * @param height the height of the picture
+     */
+    private static void drawFromAtlas(Graphics2D g2D, AbstractPiece ap, int row, 
+            int x, int y, int width, int height) {
+        GraphicsConfiguration gc = g2D.getDeviceConfiguration();
+        if(atlas == null || atlasWidth != width || atlasHeight != height || atlasConfig != gc) 
+            makeAtlas(gc, width, height);
+        int code = ap.getCode();
+        int sx = atlasColumn(code) * width, sy = row * height;
+        g2D.drawImage(atlas, x, y, x + width, y + height, sx, sy, sx + width, sy + height, null);
+    }
+    
+    /**
+     * Scales every piece into a new atlas, with a ghost below each
+     * @param gc the graphics configuration to be compatible with
+     * @param width the width of each piece
+     * @param height the height of each piece
+     */
+    private static void makeAtlas(GraphicsConfiguration gc, int width, int height) {
+        BufferedImage output = gc.createCompatibleImage(ATLAS_COLUMNS * width, 2 * height, 
+                Transparency.TRANSLUCENT);
+        Graphics2D g2D = output.createGraphics();
+        for(int code = 1; code < images.length; code++) {
+            if(images[code] == null) continue;
+            // the GIFs are indexed, which RescaleOp can't fade, so scale into ARGB first
+            BufferedImage sprite = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D spriteG2D = sprite.createGraphics();
+            spriteG2D.drawImage(images[code], 0, 0, width, height, null);
+            spriteG2D.dispose();
+            int sx = atlasColumn(code) * width;
+            g2D.drawImage(sprite, sx, 0, null);
+            g2D.drawImage(ghostify(sprite), sx, height, null);
+        }
+        g2D.dispose();
+        atlas = output;
+        atlasWidth = width;
+        atlasHeight = height;
+        atlasConfig = gc;
+    }
+    
+    /**
+     * Determines which column of the atlas a piece is in
+     * @param code the code of the piece
+     * @return the column, red pieces first
+     */
+    private static int atlasColumn(int code) {
+        int type = code & ~AbstractPiece.BLACK_CODE;
+        return (code == type) ? type - 1 : type + 6;
+    }
+    
+    /**
+     * Turns the alpha of the image to 30%
+     * @param bi the BufferedImage to change
+     * @return the changed image
+     */
+    public static BufferedImage ghostify(BufferedImage bi) {
+        return rop.filter(bi, null);
+    }
+    
+    /**
+     * Gets a piece's image
+     * @param ap the piece
+     * @return the image that represents the piece
+     */
+    public static BufferedImage getImage(AbstractPiece ap) {
+        return images[ap.getCode()];
+    }
+}
@@ -0,0 +1,236 @@
+package offlinexiangqi;
+
+import java.awt.Component;
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * Repaints a component only when something has changed, and no more often
+ * than the display refreshes<br>
+ * <br>
+ * Whatever changes what is shown asks for a repaint: the board, the mouse
+ * during a drag, or each frame of an animation. Asks that come before the
+ * next frame is due are gathered into one repaint of the union of the
+ * regions asked for, or of everything if any ask was for everything.
+ * While nothing changes, nothing runs.<br>
+ * Input that comes faster than frames can be saved up and handled by a 
+ * task run at the start of each frame, so only its latest state counts.
+ * @author Jed Wang
+ */
+public class RepaintScheduler {
+    /**
+     * The frames per second to assume when the display doesn't say
+     */
+    private static final int DEFAULT_REFRESH_RATE = 60;
+    
+    /**
+     * The component to repaint
+     */
+    private final Component component;
+    
+    /**
+     * Waits out the rest of a frame before repainting
+     */
+    private final Timer timer;
+    
+    /**
+     * How long a frame lasts in nanoseconds
+     */
+    private final long frameNanos;
+    
+    /**
+     * Whether repaints are being made at all
+     */
+    private volatile boolean running = false;
+    
+    /**
+     * The region to repaint at the next frame, or null if none yet
+     */
+    private Rectangle dirty;
+    
+    /**
+     * Whether everything is to be repainted at the next frame
+     */
+    private boolean dirtyAll;
+    
+    /**
+     * Whether a frame was asked for without saying what to repaint
+     */
+    private boolean framePending;
+    
+    /**
+     * Whether the task before the frame is running, so what it asks to
+     * repaint joins this frame instead of scheduling another
+     */
+    private boolean inFrame;
+    
+    /**
+     * What is run at the start of each frame asked for with 
+     * <code>requestFrame</code>, or null
+     */
+    private Runnable beforeFrame;
+    
+    /**
+     * When the last repaint was asked of Swing, by <code>System.nanoTime</code>
+     */
+    private long lastFrame;
+    
+    /**
+     * Creates a scheduler
+     * @param component the component to repaint
+     */
+    public RepaintScheduler(Component component) {
+        this.component = component;
+        frameNanos = 1000000000L / refreshRate();
+        timer = new Timer(0, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                repaintNow();
+            }
+        });
+        timer.setRepeats(false);
+        lastFrame = System.nanoTime() - frameNanos;
+    }
+    
+    /**
+     * Starts repainting when asked, and repaints once
+     */
+    public void start() {
+        running = true;
+        requestRepaint();
+    }
+    
+    /**
+     * Sets what runs at the start of each frame asked for with 
+     * <code>requestFrame</code>, on the event dispatch thread. 
+     * Whatever it asks to repaint is repainted in that frame.
+     * @param beforeFrame the task, or null for none
+     */
+    public void setBeforeFrame(Runnable beforeFrame) {
+        this.beforeFrame = beforeFrame;
+    }
+    
+    /**
+     * Asks for the task before the frame to run at the start of the next 
+     * frame, whether or not anything is to be repainted yet.<br>
+     * Can be called from any thread. Does nothing unless started.
+     */
+    public void requestFrame() {
+        if(!running) return;
+        if(!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    requestFrame();
+                }
+            });
+            return;
+        }
+        framePending = true;
+        schedule();
+    }
+    
+    /**
+     * Asks for everything to be repainted, which happens at the start of 
+     * the next frame.<br>
+     * Can be called from any thread. Does nothing unless started.
+     */
+    public void requestRepaint() {
+        requestRepaint(null);
+    }
+    
+    /**
+     * Asks for a region to be repainted, which happens at the start of 
+     * the next frame.<br>
+     * Can be called from any thread. Does nothing unless started.
+     * @param region the region in the component's coordinates, or null for everything
+     */
+    public void requestRepaint(Rectangle region) {
+        if(!running) return;
+        if(!SwingUtilities.isEventDispatchThread()) {
+            final Rectangle copy = (region == null) ? null : new Rectangle(region);
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    requestRepaint(copy);
+                }
+            });
+            return;
+        }
+        if(region == null) {
+            dirtyAll = true;
+        } else if(!dirtyAll && !region.isEmpty()) {
+            if(dirty == null) dirty = new Rectangle(region);
+            else dirty.add(region);
+        }
+        if(!dirtyAll && dirty == null) return;
+        schedule();
+    }
+    
+    /**
+     * Makes sure a frame happens, right away if the last one was long 
+     * enough ago and otherwise once it is due
+     */
+    private void schedule() {
+        if(inFrame) return;
+        // a repaint is already waiting for the next frame
+        if(timer.isRunning()) return;
+        long wait = lastFrame + frameNanos - System.nanoTime();
+        if(wait <= 0) {
+            repaintNow();
+        } else {
+            timer.setInitialDelay((int) ((wait + 999999) / 1000000));
+            timer.restart();
+        }
+    }
+    
+    /**
+     * Stops repainting, forgetting any repaint asked for
+     */
+    public void stop() {
+        running = false;
+        timer.stop();
+        dirty = null;
+        dirtyAll = false;
+        framePending = false;
+    }
+    
+    /**
+     * Runs the task before the frame if asked for, then repaints what was asked for
+     */
+    private void repaintNow() {
+        if(!running) return;
+        if(framePending) {
+            framePending = false;
+            if(beforeFrame != null) {
+                inFrame = true;
+                try {
+                    beforeFrame.run();
+                } finally {
+                    inFrame = false;
+                }
+            }
+        }
+        lastFrame = System.nanoTime();
+        if(dirtyAll) component.repaint();
+        else if(dirty != null) component.repaint(dirty.x, dirty.y, dirty.width, dirty.height);
+        dirty = null;
+        dirtyAll = false;
+    }
+    
+    /**
+     * Determines how often the screen refreshes
+     * @return the refresh rate in hertz
+     */
+    private static int refreshRate() {
+        if(GraphicsEnvironment.isHeadless()) return DEFAULT_REFRESH_RATE;
+        int rate = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+        return (rate == DisplayMode.REFRESH_RATE_UNKNOWN) ? DEFAULT_REFRESH_RATE : rate;
+    }
+}
@@ -0,0 +1,518 @@
+package offlinexiangqi;
+
+import java.util.Arrays;
+
+/**
+ * A class that searches for the best move: negamax alpha-beta with
+ * principal variation search, iterative deepening and aspiration windows<br>
+ * <br>
+ * The search works on its own copy of the board, with one preallocated
+ * MoveList per ply, so nothing is allocated while searching.
+ * @author Jed Wang
+ */
+public class Search {
+    /**
+     * The deepest the search can go
+     */
+    public static final int MAX_PLY = 64;
+    
+    /**
+     * A score larger than any real score
+     */
+    public static final int INFINITY = 32000;
+    
+    /**
+     * The score of mating right now.<br>
+     * A mate n plies away scores MATE - n.
+     */
+    public static final int MATE = 30000;
+    
+    /**
+     * Scores at least this large are mates
+     */
+    public static final int MATE_BOUND = MATE - MAX_PLY;
+    
+    /**
+     * The half width of the first aspiration window
+     */
+    private static final int ASPIRATION_WINDOW = 50;
+    
+    /**
+     * How many nodes are searched between looking at the clock, minus one
+     */
+    private static final int CHECK_INTERVAL = 1023;
+
+    
+    /**
+     * The position being searched
+     */
+    private final XiangqiBoard xb;
+    
+    /**
+     * The transposition table, which may be shared with other searches
+     */
+    private final TranspositionTable tt;
+    
+    /**
+     * What hands out the moves of each ply
+     */
+    private final MovePicker[] pickers;
+    
+    /**
+     * The quiet moves searched so far at each ply
+     */
+    private final MoveList[] quietsTried;
+    
+    /**
+     * The history, killer and counter move tables of this search
+     */
+    private final MoveOrdering ordering;
+    
+    /**
+     * Which pruning to do, and how much
+     */
+    private SearchOptions options = new SearchOptions();
+    
+    /**
+     * How many plies to reduce a late move by
+     * [depth][move number]
+     */
+    private final int[][] reductions = new int[MAX_PLY][MoveList.MAX_MOVES];
+    
+    /**
+     * The principal variation found from each ply
+     */
+    private final int[][] pv;
+    
+    /**
+     * How long the principal variation from each ply is
+     */
+    private final int[] pvLength;
+    
+    /**
+     * The principal variation of the last iteration, tried first
+     */
+    private int[] lastPv;
+    
+    /**
+     * How deep to search at most
+     */
+    private int maxDepth = MAX_PLY - 1;
+    
+    /**
+     * How many nodes and how many milliseconds to search at most
+     */
+    private long nodeLimit = Long.MAX_VALUE, timeLimit = 0;
+    
+    /**
+     * How many plies deeper than the iteration number each iteration searches.<br>
+     * Helper threads of a parallel search use this to stagger their depths.
+     */
+    private int depthOffset = 0;
+    
+    /**
+     * Whether each search starts a new age of the transposition table.<br>
+     * A parallel search shares one table, so it starts the age once itself.
+     */
+    private boolean agesTable = true;
+    
+    /**
+     * When the search has to stop, as a System.nanoTime()
+     */
+    private long deadline;
+    
+    /**
+     * How many nodes have been searched
+     */
+    private long nodes;
+    
+    /**
+     * The depth of the current iteration
+     */
+    private int rootDepth;
+    
+    /**
+     * Whether the search has been told to stop
+     */
+    private volatile boolean stopped;
+    
+    /**
+     * Creates a search of a position with its own transposition table
+     * @param xb the position to search, which is copied
+     */
+    public Search(XiangqiBoard xb) {
+        this(xb, new TranspositionTable());
+    }
+    
+    /**
+     * Creates a search of a position
+     * @param xb the position to search, which is copied
+     * @param tt the transposition table to use
+     */
+    public Search(XiangqiBoard xb, TranspositionTable tt) {
+        this.xb = new XiangqiBoard(xb);
+        this.tt = tt;
+        ordering = new MoveOrdering();
+        pickers = new MovePicker[MAX_PLY];
+        quietsTried = new MoveList[MAX_PLY];
+        for(int i = 0; i < MAX_PLY; i++) {
+            pickers[i] = new MovePicker(this.xb, ordering);
+            quietsTried[i] = new MoveList();
+        }
+        pv = new int[MAX_PLY][MAX_PLY];
+        pvLength = new int[MAX_PLY];
+        lastPv = new int[0];
+    }
+    
+    /**
+     * Sets how deep to search
+     * @param maxDepth the depth in plies
+     */
+    public void setMaxDepth(int maxDepth) {
+        if(maxDepth < 1 || maxDepth >= MAX_PLY)
+            throw new IllegalArgumentException("Depth must be between 1 and " + (MAX_PLY - 1));
+        this.maxDepth = maxDepth;
+    }
+    
+    /**
+     * Sets how many nodes to search at most
+     * @param nodeLimit the node limit
+     */
+    public void setNodeLimit(long nodeLimit) {
+        if(nodeLimit < 1) throw new IllegalArgumentException("Node limit must be positive");
+        this.nodeLimit = nodeLimit;
+    }
+    
+    /**
+     * Sets how long to search
+     * @param timeLimit the time limit in milliseconds, 0 for none
+     */
+    public void setTimeLimit(long timeLimit) {
+        if(timeLimit < 0) throw new IllegalArgumentException("Time limit cannot be negative");
+        this.timeLimit = timeLimit;
+    }
+    
+    /**
+     * Sets how many plies deeper than usual each iteration searches
+     * @param depthOffset the extra plies
+     */
+    public void setDepthOffset(int depthOffset) {
+        if(depthOffset < 0) throw new IllegalArgumentException("Depth offset cannot be negative");
+        this.depthOffset = depthOffset;
+    }
+    
+    /**
+     * Sets whether each search starts a new age of the transposition table
+     * @param agesTable false if whoever shares the table ages it instead
+     */
+    public void setAgesTable(boolean agesTable) {
+        this.agesTable = agesTable;
+    }
+    
+    /**
+     * Sets which pruning to do, and how much
+     * @param options the pruning options, which are read during each search
+     */
+    public void setOptions(SearchOptions options) {
+        if(options == null) throw new IllegalArgumentException("Options cannot be null");
+        this.options = options;
+    }
+    
+    /**
+     * Returns which pruning is done, and how much
+     * @return the pruning options
+     */
+    public SearchOptions getOptions() {
+        return options;
+    }
+    
+    /**
+     * Tells a running search to stop.<br>
+     * The first iteration is always finished, so there is a move to return.
+     */
+    public void stop() {
+        stopped = true;
+    }
+    
+    /**
+     * Searches deeper and deeper until a limit is reached
+     * @return the result of the last finished iteration
+     */
+    public SearchResult search() {
+        long start = System.nanoTime();
+        deadline = (timeLimit == 0) ? Long.MAX_VALUE : start + timeLimit * 1000000;
+        nodes = 0;
+        lastPv = new int[0];
+        ordering.clear();
+        if(agesTable) tt.newSearch();
+        for(int depth = 1; depth < MAX_PLY; depth++) {
+            for(int count = 1; count < MoveList.MAX_MOVES; count++) {
+                reductions[depth][count] = Math.max(0, (int) (options.lmrBase
+                        + Math.log(depth) * Math.log(count) / options.lmrDivisor));
+            }
+        }
+        SearchResult result = null;
+        int score = 0;
+        for(rootDepth = 1; rootDepth <= maxDepth; rootDepth++) {
+            int depth = Math.min(rootDepth + depthOffset, MAX_PLY - 1);
+            if(rootDepth > 1) ordering.age();
+            score = aspirate(depth, score);
+            if(aborted()) break;
+            lastPv = Arrays.copyOf(pv[0], pvLength[0]);
+            result = new SearchResult(lastPv, score, depth, nodes,
+                    (System.nanoTime() - start) / 1000000);
+            // a shorter mate will not be found deeper
+            if(Math.abs(score) >= MATE_BOUND) break;
+        }
+        // a stop that came before the search started still ends it, after one iteration
+        stopped = false;
+        return result;
+    }
+    
+    /**
+     * Searches the root with a narrow window around the last score,
+     * widening it until the score falls inside
+     * @param depth the depth to search
+     * @param guess the score of the last iteration
+     * @return the score of the root
+     */
+    private int aspirate(int depth, int guess) {
+        if(depth < 4) return negamax(depth, 0, -INFINITY, INFINITY);
+        int delta = ASPIRATION_WINDOW;
+        int alpha = Math.max(guess - delta, -INFINITY),
+                beta = Math.min(guess + delta, INFINITY);
+        while(true) {
+            int score = negamax(depth, 0, alpha, beta);
+            if(aborted()) return score;
+            if(score <= alpha) {
+                alpha = Math.max(score - delta, -INFINITY);
+            } else if(score >= beta) {
+                beta = Math.min(score + delta, INFINITY);
+            } else return score;
+            delta *= 2;
+        }
+    }
+    
+    /**
+     * Searches a node
+     * @param depth how many more plies to search
+     * @param ply how many plies from the root this node is
+     * @param alpha the score the side to move already has
+     * @param beta the score the other side already has
+     * @return the score of the node, from the side to move's view
+     */
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        if(depth <= 0) return quiesce(ply, alpha, beta);
+        pvLength[ply] = 0;
+        countNode();
+        if(aborted()) return 0;
+        if(ply >= MAX_PLY - 1) return Evaluation.evaluate(xb);
+        
+        long hash = xb.hash();
+        long entry = tt.probe(hash);
+        int ttMove = TranspositionTable.getMove(entry);
+        // only cut off in null window nodes, so the principal variation stays whole
+        if(entry != TranspositionTable.NO_ENTRY && ply > 0 && beta - alpha == 1
+                && TranspositionTable.getDepth(entry) >= depth) {
+            int score = TranspositionTable.fromStored(TranspositionTable.getScore(entry), ply);
+            int bound = TranspositionTable.getBound(entry);
+            if(bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && score >= beta)
+                    || (bound == TranspositionTable.UPPER && score <= alpha))
+                return score;
+        }
+        
+        boolean redMoving = xb.isRedToMove(), inCheck = xb.inCheck(redMoving), 
+                pvNode = beta - alpha > 1;
+        int staticEval = (inCheck) ? -INFINITY : Evaluation.evaluate(xb);
+        
+        // far below alpha near the leaves: only a capture could help
+        if(options.razoring && !pvNode && !inCheck && depth <= options.razorMaxDepth
+                && staticEval + options.razorMargin * depth < alpha) {
+            int score = quiesce(ply, alpha, beta);
+            if(score < alpha) return score;
+        }
+        
+        // still too good after passing: a real move will be too
+        if(options.nullMove && !pvNode && !inCheck && ply > 0 && depth >= 2 && staticEval >= beta
+                && xb.getLastMove() != Move.NONE && countAttackers(redMoving) >= options.nullMoveMinPieces) {
+            xb.makeNullMove();
+            int score = -negamax(depth - 1 - options.nullMoveReduction, ply + 1, -beta, -beta + 1);
+            xb.unmakeNullMove();
+            if(aborted()) return 0;
+            if(score >= beta) return (score >= MATE_BOUND) ? beta : score;
+        }
+        
+        boolean futile = options.futility && !pvNode && !inCheck && depth <= options.futilityMaxDepth
+                && Math.abs(alpha) < MATE_BOUND && staticEval + options.futilityMargin * depth <= alpha;
+        
+        if(ttMove == Move.NONE && ply < lastPv.length) ttMove = lastPv[ply];
+        MovePicker picker = pickers[ply];
+        picker.init(ttMove, ply);
+        MoveList quiets = quietsTried[ply];
+        quiets.clear();
+        
+        int best = -INFINITY, bestMove = Move.NONE, legal = 0, originalAlpha = alpha;
+        for(int move = picker.next(); move != Move.NONE; move = picker.next()) {
+            xb.makeMove(move);
+            if(xb.inCheck(redMoving)) {
+                xb.unmakeMove();
+                continue;
+            }
+            legal++;
+            boolean quiet = !Move.isCapture(move), givesCheck = xb.inCheck(!redMoving);
+            if(futile && quiet && !givesCheck && legal > 1) {
+                xb.unmakeMove();
+                continue;
+            }
+            int newDepth = depth - 1;
+            if(options.checkExtensions && givesCheck && ply + depth < MAX_PLY - 1) newDepth++;
+            
+            int score;
+            if(legal == 1) {
+                score = -negamax(newDepth, ply + 1, -beta, -alpha);
+            } else {
+                int reduction = 0;
+                if(options.lateMoveReductions && depth >= options.lmrMinDepth && legal > options.lmrMinMoves
+                        && quiet && !inCheck && !givesCheck) {
+                    // at least a ply is left to search, even if lmrMinDepth lets depth 1 in
+                    reduction = Math.max(0, Math.min(reductions[depth][Math.min(legal, MoveList.MAX_MOVES - 1)], 
+                            newDepth - 1));
+                }
+                // prove the move is no better with a null window first
+                score = -negamax(newDepth - reduction, ply + 1, -alpha - 1, -alpha);
+                if(reduction > 0 && score > alpha)
+                    score = -negamax(newDepth, ply + 1, -alpha - 1, -alpha);
+                if(score > alpha && score < beta)
+                    score = -negamax(newDepth, ply + 1, -beta, -alpha);
+            }
+            xb.unmakeMove();
+            if(aborted()) return 0;
+            
+            if(score > best) {
+                best = score;
+                bestMove = move;
+                if(score > alpha) {
+                    alpha = score;
+                    pv[ply][0] = move;
+                    System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+                    pvLength[ply] = pvLength[ply + 1] + 1;
+                    if(alpha >= beta) {
+                        if(!Move.isCapture(move))
+                            ordering.update(ply, depth, move, xb.getLastMove(), quiets);
+                        break;
+                    }
+                }
+            }
+            if(quiet) quiets.add(move);
+        }
+        // in xiangqi, having no moves loses whether in check or not
+        if(legal == 0) return -MATE + ply;
+        int bound = (best >= beta) ? TranspositionTable.LOWER
+                : (best > originalAlpha) ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        tt.store(hash, (bound == TranspositionTable.UPPER) ? Move.NONE : bestMove,
+                TranspositionTable.toStored(best, ply), depth, bound);
+        return best;
+    }
+    
+    /**
+     * Searches only captures until the position is quiet, so the leaves
+     * are not scored in the middle of an exchange. Captures that lose
+     * material by static exchange evaluation are left out.<br>
+     * When in check every move is searched instead, since standing pat is no option.
+     * @param ply how many plies from the root this node is
+     * @param alpha the score the side to move already has
+     * @param beta the score the other side already has
+     * @return the score of the node, from the side to move's view
+     */
+    private int quiesce(int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        countNode();
+        if(aborted()) return 0;
+        if(ply >= MAX_PLY - 1) return Evaluation.evaluate(xb);
+        
+        boolean redMoving = xb.isRedToMove();
+        MovePicker picker = pickers[ply];
+        int best;
+        if(xb.inCheck(redMoving)) {
+            best = -MATE + ply;
+            picker.init(Move.NONE, ply);
+        } else {
+            best = Evaluation.evaluate(xb);
+            if(best >= beta) return best;
+            if(best > alpha) alpha = best;
+            picker.initCaptures();
+        }
+        
+        for(int move = picker.next(); move != Move.NONE; move = picker.next()) {
+            xb.makeMove(move);
+            if(xb.inCheck(redMoving)) {
+                xb.unmakeMove();
+                continue;
+            }
+            int score = -quiesce(ply + 1, -beta, -alpha);
+            xb.unmakeMove();
+            if(aborted()) return 0;
+            
+            if(score > best) {
+                best = score;
+                if(score > alpha) {
+                    alpha = score;
+                    if(alpha >= beta) break;
+                }
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Counts the pieces of a side that can attack from across the river
+     * @param isRed which side to count
+     * @return how many chariots, horses and cannons the side has
+     */
+    private int countAttackers(boolean isRed) {
+        return xb.countPieces(isRed, AbstractPiece.CHARIOT) + xb.countPieces(isRed, AbstractPiece.HORSE)
+                + xb.countPieces(isRed, AbstractPiece.CANNON);
+    }
+    
+    /**
+     * Counts a node, and stops the search if a limit has been reached
+     */
+    private void countNode() {
+        nodes++;
+        if((nodes & CHECK_INTERVAL) == 0 && System.nanoTime() >= deadline) stopped = true;
+        if(nodes >= nodeLimit) stopped = true;
+    }
+    
+    /**
+     * Determines whether the search has to stop.<br>
+     * A stop is ignored until the first iteration is done.
+     * @return whether to stop
+     */
+    private boolean aborted() {
+        return stopped && rootDepth > 1;
+    }
+    
+    /**
+     * Returns the position being searched
+     * @return the search's own copy of the board
+     */
+    public XiangqiBoard getBoard() {
+        return xb;
+    }
+    
+    /**
+     * Returns the transposition table this search uses
+     * @return the transposition table
+     */
+    public TranspositionTable getTranspositionTable() {
+        return tt;
+    }
+    
+    /**
+     * Returns how many nodes have been searched so far
+     * @return the node count
+     */
+    public long getNodes() {
+        return nodes;
+    }
+}
@@ -0,0 +1,102 @@
+package offlinexiangqi;
+
+/**
+ * The switches and parameters of the search's selective pruning, so each
+ * can be turned off or tuned when comparing versions against each other<br>
+ * <br>
+ * A search reads these as it goes, so change them only between searches.
+ * @author Jed Wang
+ */
+public class SearchOptions {
+    /**
+     * Whether to try passing and cut off if the position is still too good
+     */
+    public boolean nullMove = true;
+    
+    /**
+     * How many plies shallower the null move is searched
+     */
+    public int nullMoveReduction = 2;
+    
+    /**
+     * How many chariots, horses and cannons the side to move needs to try
+     * a null move. With fewer, passing might really be better than any move.
+     */
+    public int nullMoveMinPieces = 1;
+    
+    /**
+     * Whether to search late quiet moves shallower first
+     */
+    public boolean lateMoveReductions = true;
+    
+    /**
+     * How deep a node has to be to reduce its late moves
+     */
+    public int lmrMinDepth = 3;
+    
+    /**
+     * How many moves are searched at full depth before reducing
+     */
+    public int lmrMinMoves = 3;
+    
+    /**
+     * The reduction is lmrBase + ln(depth) * ln(move number) / lmrDivisor plies
+     */
+    public double lmrBase = 0.75, lmrDivisor = 2.25;
+    
+    /**
+     * Whether to skip quiet moves near the leaves that cannot raise the score to alpha
+     */
+    public boolean futility = true;
+    
+    /**
+     * How deep a node can be and still be futility pruned
+     */
+    public int futilityMaxDepth = 3;
+    
+    /**
+     * How much a quiet move might gain per ply of depth left
+     */
+    public int futilityMargin = 120;
+    
+    /**
+     * Whether to drop straight into quiescence near the leaves when far below alpha
+     */
+    public boolean razoring = true;
+    
+    /**
+     * How deep a node can be and still be razored
+     */
+    public int razorMaxDepth = 2;
+    
+    /**
+     * How far below alpha the position has to be, per ply of depth left
+     */
+    public int razorMargin = 300;
+    
+    /**
+     * Whether to search moves that give check one ply deeper
+     */
+    public boolean checkExtensions = true;
+    
+    /**
+     * Creates options with every pruning turned on
+     */
+    public SearchOptions() {
+    }
+    
+    /**
+     * Creates options with every pruning and extension turned off:
+     * a plain alpha-beta search
+     * @return the options
+     */
+    public static SearchOptions none() {
+        SearchOptions output = new SearchOptions();
+        output.nullMove = false;
+        output.lateMoveReductions = false;
+        output.futility = false;
+        output.razoring = false;
+        output.checkExtensions = false;
+        return output;
+    }
+}
@@ -0,0 +1,116 @@
+package offlinexiangqi;
+
+/**
+ * The outcome of a search: the best move, its score and the principal variation
+ * @author Jed Wang
+ * @see Search
+ */
+public class SearchResult {
+    /**
+     * The principal variation, as packed moves
+     */
+    private final int[] pv;
+    
+    /**
+     * The score of the best move, from the side to move's view
+     */
+    private final int score;
+    
+    /**
+     * The depth of the last finished iteration
+     */
+    private final int depth;
+    
+    /**
+     * How many nodes were searched
+     */
+    private final long nodes;
+    
+    /**
+     * How long the search took in milliseconds
+     */
+    private final long time;
+    
+    /**
+     * Creates a new SearchResult
+     * @param pv the principal variation
+     * @param score the score of the best move
+     * @param depth the depth searched
+     * @param nodes how many nodes were searched
+     * @param time how long the search took in milliseconds
+     */
+    public SearchResult(int[] pv, int score, int depth, long nodes, long time) {
+        this.pv = pv.clone();
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.time = time;
+    }
+    
+    /**
+     * Returns the best move
+     * @return the packed best move, or <code>Move.NONE</code> if there is none
+     */
+    public int getBestMove() {
+        return (pv.length == 0) ? Move.NONE : pv[0];
+    }
+    
+    /**
+     * Returns the principal variation
+     * @return the packed moves of the principal variation
+     */
+    public int[] getPv() {
+        return pv.clone();
+    }
+    
+    /**
+     * Returns the score of the best move
+     * @return the score, positive if the side to move is better
+     */
+    public int getScore() {
+        return score;
+    }
+    
+    /**
+     * Determines whether the score is a forced mate for either side
+     * @return whether the score is a mate score
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE_BOUND;
+    }
+    
+    /**
+     * Returns the depth of the last finished iteration
+     * @return the depth in plies
+     */
+    public int getDepth() {
+        return depth;
+    }
+    
+    /**
+     * Returns how many nodes were searched
+     * @return the node count
+     */
+    public long getNodes() {
+        return nodes;
+    }
+    
+    /**
+     * Returns how long the search took
+     * @return the time in milliseconds
+     */
+    public long getTime() {
+        return time;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder output = new StringBuilder();
+        output.append("depth ").append(depth).append(" score ").append(score)
+                .append(" nodes ").append(nodes).append(" time ").append(time).append(" pv");
+        for(int move : pv) {
+            output.append(' ').append(Move.toString(move));
+        }
+        return output.toString();
+    }
+}
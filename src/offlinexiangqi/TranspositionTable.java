@@ -0,0 +1,308 @@
+package offlinexiangqi;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size table of searched positions, shared without locks<br>
+ * <br>
+ * Each entry is two longs: the position's hash XORed with the data, then
+ * the data. A reader XORs them back and compares with the hash it wants,
+ * so an entry torn by two threads writing at once reads as a miss
+ * instead of as wrong data.<br>
+ * <br>
+ * The bits of the data are laid out as such:<br>
+ * 0-21: the best move, without flags<br>
+ * 22-37: the score<br>
+ * 38-45: the depth<br>
+ * 46-47: the bound<br>
+ * 48-53: the age of the search that stored it
+ * @author Jed Wang
+ */
+public class TranspositionTable {
+    /**
+     * The bounds a score can be.<br>
+     * An upper bound failed low, a lower bound failed high.
+     */
+    public static final int UPPER = 1, LOWER = 2, EXACT = 3;
+    
+    /**
+     * What <code>probe</code> returns when the position isn't in the table
+     */
+    public static final long NO_ENTRY = 0;
+    
+    /**
+     * The size of a table when none is given, in megabytes
+     */
+    public static final int DEFAULT_SIZE = 16;
+    
+    /**
+     * How many entries share an index, of which the least useful is replaced
+     */
+    private static final int BUCKET_SIZE = 2;
+    
+    /**
+     * Where each part of the data is stored
+     */
+    private static final int SCORE_SHIFT = 22, DEPTH_SHIFT = 38, BOUND_SHIFT = 46, AGE_SHIFT = 48;
+    
+    /**
+     * Masks for each part of the data
+     */
+    private static final long MOVE_MASK = (1L << 22) - 1, SCORE_MASK = 0xFFFF,
+            DEPTH_MASK = 0xFF, BOUND_MASK = 0x3, AGE_MASK = 0x3F;
+    
+    /**
+     * The entries, two longs each
+     */
+    private long[] table;
+    
+    /**
+     * Selects the bucket of a hash
+     */
+    private int bucketMask;
+    
+    /**
+     * The age of the current search
+     */
+    private volatile int age;
+    
+    /**
+     * How many probes were made, and how many of them found the position
+     */
+    private final LongAdder probes = new LongAdder(), hits = new LongAdder();
+    
+    /**
+     * Creates a table of the default size
+     */
+    public TranspositionTable() {
+        this(DEFAULT_SIZE);
+    }
+    
+    /**
+     * Creates a table
+     * @param megabytes about how large the table should be, rounded down to a power of two
+     */
+    public TranspositionTable(int megabytes) {
+        resize(megabytes);
+    }
+    
+    /**
+     * Throws away every entry and changes the size of this table
+     * @param megabytes about how large the table should be, rounded down to a power of two
+     */
+    public final void resize(int megabytes) {
+        if(megabytes < 1) throw new IllegalArgumentException("Size must be at least 1 MB");
+        long buckets = Long.highestOneBit(((long) megabytes << 20) / (BUCKET_SIZE * 16));
+        // a Java array holds a little under 2^31 longs
+        buckets = Math.min(buckets, (1L << 30) / (BUCKET_SIZE * 2));
+        table = new long[(int) buckets * BUCKET_SIZE * 2];
+        bucketMask = (int) buckets - 1;
+        age = 0;
+        probes.reset();
+        hits.reset();
+    }
+    
+    /**
+     * Throws away every entry
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        age = 0;
+        probes.reset();
+        hits.reset();
+    }
+    
+    /**
+     * Tells this table a new search has started, so entries from older
+     * searches are replaced first
+     */
+    public void newSearch() {
+        age = (age + 1) & (int) AGE_MASK;
+    }
+    
+    /**
+     * Looks up a position
+     * @param hash the Zobrist hash of the position
+     * @return the data stored for it, or <code>NO_ENTRY</code>
+     */
+    public long probe(long hash) {
+        probes.increment();
+        int index = indexOf(hash);
+        for(int i = 0; i < BUCKET_SIZE; i++, index += 2) {
+            long data = table[index + 1];
+            if((table[index] ^ data) == hash && data != NO_ENTRY) {
+                hits.increment();
+                return data;
+            }
+        }
+        return NO_ENTRY;
+    }
+    
+    /**
+     * Stores a searched position.<br>
+     * An entry of the same position is kept only if this search already took
+     * it deeper and the new score isn't exact. Otherwise an empty entry, an
+     * entry from an older search or the shallowest entry is replaced, in that order.
+     * @param hash the Zobrist hash of the position
+     * @param move the best packed move, or <code>Move.NONE</code>
+     * @param score the score, adjusted by <code>toStored</code>
+     * @param depth the depth searched
+     * @param bound <code>UPPER</code>, <code>LOWER</code> or <code>EXACT</code>
+     */
+    public void store(long hash, int move, int score, int depth, int bound) {
+        int start = indexOf(hash), index = start, replace = start, worst = Integer.MAX_VALUE;
+        for(int i = 0; i < BUCKET_SIZE; i++, index += 2) {
+            long data = table[index + 1];
+            if((table[index] ^ data) == hash) {
+                if(move == Move.NONE) move = getMove(data);
+                // keep a deeper result unless this one is exact
+                if(bound != EXACT && depth < getDepth(data) && getAge(data) == age) return;
+                replace = index;
+                break;
+            }
+            // the worth of an entry: its depth, but much less for an old search
+            int worth = (data == NO_ENTRY) ? Integer.MIN_VALUE
+                    : getDepth(data) - ((getAge(data) == age) ? 0 : 256);
+            if(worth < worst) {
+                worst = worth;
+                replace = index;
+            }
+        }
+        long data = (move & MOVE_MASK)
+                | ((score & SCORE_MASK) << SCORE_SHIFT)
+                | (((long) depth & DEPTH_MASK) << DEPTH_SHIFT)
+                | (((long) bound & BOUND_MASK) << BOUND_SHIFT)
+                | (((long) age & AGE_MASK) << AGE_SHIFT);
+        table[replace] = hash ^ data;
+        table[replace + 1] = data;
+    }
+    
+    /**
+     * Finds the first entry of a hash's bucket
+     * @param hash the Zobrist hash
+     * @return the index into the table
+     */
+    private int indexOf(long hash) {
+        // the low bits pick the bucket, the whole hash is compared
+        return ((int) hash & bucketMask) * BUCKET_SIZE * 2;
+    }
+    
+    /**
+     * Returns the best move of an entry
+     * @param data the data of an entry
+     * @return the packed move, or <code>Move.NONE</code>
+     */
+    public static int getMove(long data) {
+        return (int) (data & MOVE_MASK);
+    }
+    
+    /**
+     * Returns the score of an entry, still adjusted for storing
+     * @param data the data of an entry
+     * @return the score
+     */
+    public static int getScore(long data) {
+        return (short) (data >>> SCORE_SHIFT);
+    }
+    
+    /**
+     * Returns the depth of an entry
+     * @param data the data of an entry
+     * @return the depth searched
+     */
+    public static int getDepth(long data) {
+        return (int) ((data >>> DEPTH_SHIFT) & DEPTH_MASK);
+    }
+    
+    /**
+     * Returns the bound of an entry
+     * @param data the data of an entry
+     * @return <code>UPPER</code>, <code>LOWER</code> or <code>EXACT</code>
+     */
+    public static int getBound(long data) {
+        return (int) ((data >>> BOUND_SHIFT) & BOUND_MASK);
+    }
+    
+    /**
+     * Returns the age of the search that stored an entry
+     * @param data the data of an entry
+     * @return the age
+     */
+    private static int getAge(long data) {
+        return (int) ((data >>> AGE_SHIFT) & AGE_MASK);
+    }
+    
+    /**
+     * Adjusts a score for storing.<br>
+     * Mate scores count plies from the root; stored, they count plies from
+     * the position instead, so they stay right when found at another ply.
+     * @param score the score
+     * @param ply how many plies from the root the position is
+     * @return the score to store
+     */
+    public static int toStored(int score, int ply) {
+        if(score >= Search.MATE_BOUND) return score + ply;
+        if(score <= -Search.MATE_BOUND) return score - ply;
+        return score;
+    }
+    
+    /**
+     * Undoes <code>toStored</code>
+     * @param score the stored score
+     * @param ply how many plies from the root the position is
+     * @return the score
+     */
+    public static int fromStored(int score, int ply) {
+        if(score >= Search.MATE_BOUND) return score - ply;
+        if(score <= -Search.MATE_BOUND) return score + ply;
+        return score;
+    }
+    
+    /**
+     * Returns how many lookups were made since the table was cleared
+     * @return the number of probes
+     */
+    public long getProbes() {
+        return probes.sum();
+    }
+    
+    /**
+     * Returns how many lookups found their position
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    /**
+     * Returns the fraction of lookups that found their position
+     * @return the hit rate, from 0 to 1
+     */
+    public double getHitRate() {
+        long p = probes.sum();
+        return (p == 0) ? 0 : (double) hits.sum() / p;
+    }
+    
+    /**
+     * Estimates how full the table is with entries from the current search,
+     * by sampling the first thousand entries
+     * @return the fill rate in permill
+     */
+    public int getFillRate() {
+        int samples = Math.min(1000, table.length / 2), filled = 0;
+        for(int i = 0; i < samples; i++) {
+            long data = table[2 * i + 1];
+            if(data != NO_ENTRY && getAge(data) == age) filled++;
+        }
+        return (samples == 0) ? 0 : filled * 1000 / samples;
+    }
+    
+    /**
+     * Returns how large this table is
+     * @return the size in bytes
+     */
+    public long getSize() {
+        return (long) table.length * 8;
+    }
+}
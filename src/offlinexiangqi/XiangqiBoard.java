@@ -1,25 +1,21 @@
 package offlinexiangqi;
 
-import java.awt.BasicStroke;
-import java.awt.Color;
-import java.awt.Graphics;
-import java.awt.Graphics2D;
-import java.awt.Point;
-import java.awt.RadialGradientPaint;
-import java.awt.RenderingHints;
-import java.awt.geom.Ellipse2D;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
- * A class that represents a Xiangqi board
+ * A class that represents a Xiangqi board: the pieces, the side to move 
+ * and the moves made so far.<br>
+ * It has no AWT dependencies, see <code>XiangqiBoardView</code> for drawing it.
  * @author Jed Wang
  */
 public class XiangqiBoard {
     /**
-     * The board that stores the pieces.
+     * The board that stores the pieces.<br>
+     * Indexed by square, see <code>toSquareIndex</code>
      */
-    private AbstractPiece[][] board;
+    private AbstractPiece[] board;
     
     /**
      * Whether the player this board is facing is red
@@ -27,411 +23,317 @@ public class XiangqiBoard {
     private boolean playerIsRed = true;
     
     /**
-     * A HashMap that has the positions of the generals 
+     * The squares of the red and black generals
      */
-    private HashMap<Boolean, String> generalPos;
+    private int redGeneral, blackGeneral;
     
     /**
-     * Coordinates of the top left corner
+     * All of the legal moves possible
      */
-    private int x, y;
+    private MoveList legalMoves;
     
     /**
-     * The last move by a piece.<br>
-     * Controls drawing the last move
+     * Who to tell when the board changes. Copies of a board start without any.
      */
-    private String lastMoveFrom = null, lastMoveTo = null;
+    private final List<XiangqiBoardListener> listeners = new CopyOnWriteArrayList<>();
     
     /**
-     * The piece's square to be dragging from.<br>
-     * Controls dragging pieces
+     * The undo stack: the moves made
      */
-    private String draggingFrom = null;
+    private int[] undoMoves;
     
     /**
-     * The piece's square to be dragging from.<br>
-     * Controls playing around with pieces
+     * The undo stack: what each move captured
      */
-    private String fakeDraggingFrom = null;
+    private AbstractPiece[] undoCaptured;
     
     /**
-     * The last known non-null point the mouse was at.<br>
-     * Controls dragging pieces
+     * The undo stack: where the generals were before each move
      */
-    private Point lastPoint;
+    private int[] undoRedGeneral, undoBlackGeneral;
     
     /**
-     * From which perspective the board is to be drawn.
+     * The undo stack: the hash before each move
      */
-    private boolean fromPerspective = true;
+    private long[] undoHash;
     
     /**
-     * Which side this player can move pieces for.<br>
-     * 0 == RED<br>
-     * 1 == BLACK<br>
-     * 2 == BOTH
+     * The Zobrist hash of the current position
      */
-    private int manipulable = 2;
+    private long hash;
     
     /**
-     * The selected square
+     * The running midgame and endgame scores of every piece, from red's side
      */
-    private String selected = null;
+    private int midgameScore, endgameScore;
     
     /**
-     * A Map of all of the legal moves possible
+     * How much material is left, which blends the midgame and endgame scores
      */
-    private HashMap<String, LinkedList<String>> allLegalMoves;
+    private int phase;
     
     /**
-     * The size of the individual xiangqi squares.
+     * How many pieces of each code are on the board
      */
-    public static final int SQUARE_SIZE = 57;
+    private int[] pieceCounts = new int[16];
     
     /**
-     * The offset to the center needed for a 13-diameter circle
+     * How many moves are on the undo stack
      */
-    public static final int CENTER_OFFSET = (SQUARE_SIZE-13)/2;
+    private int undoSize;
     
     /**
-     * The sizes of the triangles that surround a piece that can be captured
+     * Scratch space for <code>see</code>: the gain after each capture, and
+     * the square each capturer came from. There are at most 32 pieces.
      */
-    public static final int TRIANGLE_SIZE = (int) ((11.0/51)*SQUARE_SIZE);
+    private final int[] seeGains = new int[33], seeSquares = new int[33];
     
     /**
-     * A number which represents Red is manipulable.
+     * The capturers of <code>see</code>, so the board can be put back
      */
-    public static final int WHITE_MANIPULABLE = 0;
+    private final AbstractPiece[] seePieces = new AbstractPiece[33];
     
     /**
-     * A number which represents Black is manipulable.
+     * The initial capacity of the undo stack
      */
-    public static final int BLACK_MANIPULABLE = 1;
+    private static final int UNDO_CAPACITY = 256;
     
     /**
-     * A number which represents both sides is manipulable.
+     * The number of squares on a xiangqi board.
      */
-    public static final int BOTH_MANIPULABLE = 2;
+    public static final int BOARD_SIZE = 90;
+    
+    /**
+     * Represents the lack of a square, i.e. a shift off of the board.
+     */
+    public static final int NO_SQUARE = -1;
+    
+    /**
+     * The column and row of every square index
+     */
+    private static final int[] COLUMN_OF = new int[BOARD_SIZE], 
+            ROW_OF = new int[BOARD_SIZE];
+    
+    /**
+     * The name of every square index, i.e. "e10"
+     */
+    private static final String[] SQUARE_NAMES = new String[BOARD_SIZE];
+    
+    /**
+     * static init
+     */
+    static {
+        for(int i = 0; i < BOARD_SIZE; i++) {
+            COLUMN_OF[i] = i % 9;
+            ROW_OF[i] = i / 9;
+            SQUARE_NAMES[i] = "" + (char)('a' + COLUMN_OF[i]) + (10 - ROW_OF[i]);
+        }
+    }
     
     /**
      * Default constructor.
      */
     public XiangqiBoard() {
-        board = new AbstractPiece[9][10];
-        generalPos = new HashMap<>();
+        board = new AbstractPiece[BOARD_SIZE];
         initPieces();
-        allLegalMoves = new HashMap<>();
-        x = y = 0;
+        legalMoves = new MoveList();
+        undoMoves = new int[UNDO_CAPACITY];
+        undoCaptured = new AbstractPiece[UNDO_CAPACITY];
+        undoRedGeneral = new int[UNDO_CAPACITY];
+        undoBlackGeneral = new int[UNDO_CAPACITY];
+        undoHash = new long[UNDO_CAPACITY];
+        undoSize = 0;
+        hash = computeHash();
+        computeScores();
     }
     
     /**
      * Adds the starting pieces to a chessboard.
      */
     private void initPieces() {
-        board[0][0] = new Chariot(false);
-        board[1][0] = new Horse(false);
-        board[2][0] = new Elephant(false);
-        board[3][0] = new Advisor(false);
-        board[4][0] = new General(false);
-        board[5][0] = new Advisor(false);
-        board[6][0] = new Elephant(false);
-        board[7][0] = new Horse(false);
-        board[8][0] = new Chariot(false);
+        board[toSquareIndex(0, 0)] = Chariot.BLACK;
+        board[toSquareIndex(1, 0)] = Horse.BLACK;
+        board[toSquareIndex(2, 0)] = Elephant.BLACK;
+        board[toSquareIndex(3, 0)] = Advisor.BLACK;
+        board[toSquareIndex(4, 0)] = General.BLACK;
+        board[toSquareIndex(5, 0)] = Advisor.BLACK;
+        board[toSquareIndex(6, 0)] = Elephant.BLACK;
+        board[toSquareIndex(7, 0)] = Horse.BLACK;
+        board[toSquareIndex(8, 0)] = Chariot.BLACK;
         
-        board[1][2] = new Cannon(false);
-        board[7][2] = new Cannon(false);
+        board[toSquareIndex(1, 2)] = Cannon.BLACK;
+        board[toSquareIndex(7, 2)] = Cannon.BLACK;
         
-        board[0][3] = new Pawn(false);
-        board[2][3] = new Pawn(false);
-        board[4][3] = new Pawn(false);
-        board[6][3] = new Pawn(false);
-        board[8][3] = new Pawn(false);
+        board[toSquareIndex(0, 3)] = Pawn.BLACK;
+        board[toSquareIndex(2, 3)] = Pawn.BLACK;
+        board[toSquareIndex(4, 3)] = Pawn.BLACK;
+        board[toSquareIndex(6, 3)] = Pawn.BLACK;
+        board[toSquareIndex(8, 3)] = Pawn.BLACK;
         
-        board[0][9] = new Chariot(true);
-        board[1][9] = new Horse(true);
-        board[2][9] = new Elephant(true);
-        board[3][9] = new Advisor(true);
-        board[4][9] = new General(true);
-        board[5][9] = new Advisor(true);
-        board[6][9] = new Elephant(true);
-        board[7][9] = new Horse(true);
-        board[8][9] = new Chariot(true);
+        board[toSquareIndex(0, 9)] = Chariot.RED;
+        board[toSquareIndex(1, 9)] = Horse.RED;
+        board[toSquareIndex(2, 9)] = Elephant.RED;
+        board[toSquareIndex(3, 9)] = Advisor.RED;
+        board[toSquareIndex(4, 9)] = General.RED;
+        board[toSquareIndex(5, 9)] = Advisor.RED;
+        board[toSquareIndex(6, 9)] = Elephant.RED;
+        board[toSquareIndex(7, 9)] = Horse.RED;
+        board[toSquareIndex(8, 9)] = Chariot.RED;
         
-        board[1][7] = new Cannon(true);
-        board[7][7] = new Cannon(true);
+        board[toSquareIndex(1, 7)] = Cannon.RED;
+        board[toSquareIndex(7, 7)] = Cannon.RED;
         
-        board[0][6] = new Pawn(true);
-        board[2][6] = new Pawn(true);
-        board[4][6] = new Pawn(true);
-        board[6][6] = new Pawn(true);
-        board[8][6] = new Pawn(true);
+        board[toSquareIndex(0, 6)] = Pawn.RED;
+        board[toSquareIndex(2, 6)] = Pawn.RED;
+        board[toSquareIndex(4, 6)] = Pawn.RED;
+        board[toSquareIndex(6, 6)] = Pawn.RED;
+        board[toSquareIndex(8, 6)] = Pawn.RED;
         
-        generalPos.put(true, "e1");
-        generalPos.put(false, "e10");
+        redGeneral = toSquareIndex(4, 9);
+        blackGeneral = toSquareIndex(4, 0);
     }
     
     /**
-     * Draws the current state of the chess board
-     * @param g Graphics to draw on
+     * Constructor from a previous XiangqiBoard
+     * @param xb the XiangqiBoard to duplicate
      */
-    public void draw(Graphics g) {
-        Point temp = XiangqiPanel.getMouseCoordinates();
-        if(temp != null) 
-            lastPoint = temp;
-        
-        Graphics2D g2D = (Graphics2D) g;
-        g2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        
-        drawLines(g2D);
-        drawCheck(g2D);
-        drawSelection(g2D);
-        drawPieces(g2D);
-        drawDraggedPiece(g2D);
-    }
-    
-    /**
-     * Draws the checkered pattern
-     * @param g2D Graphics2D to draw on
-     */
-    private void drawLines(Graphics2D g2D) {
-        g2D.setColor(new Color(181, 136, 99));
-        g2D.fillRect(x, y, 9*SQUARE_SIZE, 10*SQUARE_SIZE);
-        g2D.setColor(new Color(240, 217, 181));
-        g2D.fillRect(x + SQUARE_SIZE / 2, y + SQUARE_SIZE / 2, 
-                8*SQUARE_SIZE, 9*SQUARE_SIZE);
-        g2D.setColor(Color.BLACK);
-        g2D.setStroke(new BasicStroke(4, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_MITER));
-        g2D.drawRect(SQUARE_SIZE/2 - 5 + x, SQUARE_SIZE/2 - 5 + y, 8*SQUARE_SIZE + 10, 9*SQUARE_SIZE + 10);
-        g2D.setStroke(new BasicStroke(2, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_MITER));
-        g2D.drawRect(SQUARE_SIZE/2 + x, SQUARE_SIZE/2 + y, 8*SQUARE_SIZE, 9*SQUARE_SIZE);
-        g2D.drawLine(SQUARE_SIZE/2 + x, SQUARE_SIZE/2 + SQUARE_SIZE*4 + y, 
-                SQUARE_SIZE/2 + SQUARE_SIZE*8 + x, SQUARE_SIZE/2 + SQUARE_SIZE*4 + y);
-        g2D.drawLine(SQUARE_SIZE/2 + x, SQUARE_SIZE/2 + SQUARE_SIZE*5 + y, 
-                SQUARE_SIZE/2 + SQUARE_SIZE*8 + x, SQUARE_SIZE/2 + SQUARE_SIZE*5 + y);
-        g2D.setStroke(new BasicStroke(0.75f, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_MITER));
-        for(int i = 1; i < 8; i++) {
-            g2D.drawLine(SQUARE_SIZE/2 + SQUARE_SIZE * i, SQUARE_SIZE/2, 
-                    SQUARE_SIZE/2 + SQUARE_SIZE * i, SQUARE_SIZE/2 + SQUARE_SIZE*4);
-            g2D.drawLine(SQUARE_SIZE/2 + SQUARE_SIZE * i, SQUARE_SIZE/2 + SQUARE_SIZE*5, 
-                    SQUARE_SIZE/2 + SQUARE_SIZE * i, SQUARE_SIZE/2 + SQUARE_SIZE*9);
-        }
-        for(int i = 1; i < 4; i++) {
-            g2D.drawLine(SQUARE_SIZE/2, SQUARE_SIZE/2 + SQUARE_SIZE*i, 
-                    SQUARE_SIZE/2 + SQUARE_SIZE*8, SQUARE_SIZE/2 + SQUARE_SIZE*i);
-        }
-        for(int i = 5; i < 9; i++) {
-            g2D.drawLine(SQUARE_SIZE/2, SQUARE_SIZE/2 + SQUARE_SIZE*i, 
-                    SQUARE_SIZE/2 + SQUARE_SIZE*8, SQUARE_SIZE/2 + SQUARE_SIZE*i);
-        }
-        g2D.drawLine(SQUARE_SIZE/2 + SQUARE_SIZE*3, SQUARE_SIZE/2, SQUARE_SIZE/2 + SQUARE_SIZE*5, SQUARE_SIZE/2 + SQUARE_SIZE*2);
-        g2D.drawLine(SQUARE_SIZE/2 + SQUARE_SIZE*3, SQUARE_SIZE/2 + SQUARE_SIZE*2, SQUARE_SIZE/2 + SQUARE_SIZE*5, SQUARE_SIZE/2);
-        
-        g2D.setColor(new Color(155, 199, 0, 105));
-        if(lastMoveFrom != null) {
-            if(fromPerspective) {
-                g2D.fillRect(getColumn(lastMoveFrom)*SQUARE_SIZE+x, 
-                        getRow(lastMoveFrom)*SQUARE_SIZE+y, 
-                        SQUARE_SIZE, SQUARE_SIZE);
-            } else {
-                g2D.fillRect((9-getColumn(lastMoveFrom))*SQUARE_SIZE+x, 
-                        (9-getRow(lastMoveFrom))*SQUARE_SIZE+y, 
-                        SQUARE_SIZE, SQUARE_SIZE);
-            }
-        }
-        if(lastMoveTo != null) {
-            if(fromPerspective) {
-                g2D.fillRect(getColumn(lastMoveTo)*SQUARE_SIZE+x, 
-                        getRow(lastMoveTo)*SQUARE_SIZE+y, 
-                        SQUARE_SIZE, SQUARE_SIZE);
-            } else {
-                g2D.fillRect((9-getColumn(lastMoveTo))*SQUARE_SIZE+x, 
-                        (9-getRow(lastMoveTo))*SQUARE_SIZE+y, 
-                        SQUARE_SIZE, SQUARE_SIZE);
-            }
-        }
+    public XiangqiBoard(XiangqiBoard xb) {
+        board = xb.board.clone();
+        redGeneral = xb.redGeneral;
+        blackGeneral = xb.blackGeneral;
+        playerIsRed = xb.playerIsRed;
+        legalMoves = new MoveList();
+        int capacity = Math.max(UNDO_CAPACITY, xb.undoSize);
+        undoMoves = Arrays.copyOf(xb.undoMoves, capacity);
+        undoCaptured = Arrays.copyOf(xb.undoCaptured, capacity);
+        undoRedGeneral = Arrays.copyOf(xb.undoRedGeneral, capacity);
+        undoBlackGeneral = Arrays.copyOf(xb.undoBlackGeneral, capacity);
+        undoHash = Arrays.copyOf(xb.undoHash, capacity);
+        undoSize = xb.undoSize;
+        hash = xb.hash;
+        midgameScore = xb.midgameScore;
+        endgameScore = xb.endgameScore;
+        phase = xb.phase;
+        pieceCounts = xb.pieceCounts.clone();
     }
     
     /**
-     * Draws the pieces on the board.
-     * @param g2D Graphics2D to draw on
-     */
-    private void drawPieces(Graphics2D g2D) {
-        for (int i = 0; i < board.length; ++i) {
-            for (int j = 0; j < board[i].length; ++j) {
-                if (board[i][j] != null) {
-                    if (toSquare(i, j).equals(draggingFrom) || toSquare(i, j).equals(fakeDraggingFrom)) {
-                        if(fromPerspective) {
-                            board[i][j].drawGhost(g2D, (i * SQUARE_SIZE) + x, 
-                                    (j * SQUARE_SIZE) + y, SQUARE_SIZE, SQUARE_SIZE);
-                        } else {
-                            board[i][j].drawGhost(g2D, ((9-i) * SQUARE_SIZE) + x, 
-                                    ((9-j) * SQUARE_SIZE)+ y, SQUARE_SIZE, SQUARE_SIZE);
-                        }
-                    } else {
-                        if(fromPerspective) {
-                            board[i][j].draw(g2D, (i * SQUARE_SIZE) + x, 
-                                    (j * SQUARE_SIZE) + y, SQUARE_SIZE, SQUARE_SIZE);
-                        } else {
-                            board[i][j].draw(g2D, ((9-i) * SQUARE_SIZE) + x, 
-                                    ((9-j) * SQUARE_SIZE) + y, SQUARE_SIZE, SQUARE_SIZE);
-                        }
-                    }
-                }
-            }
-        }
+     * Constructor from a position in FEN
+     * @param fen the position, see <code>setFEN</code>
+     */
+    public XiangqiBoard(String fen) {
+        this();
+        setFEN(fen);
     }
     
     /**
-     * Draws the selected pieces
-     * @param g2D Graphics2D to draw on
+     * Determines the square represented by the row and column
+     * @param column the column
+     * @param row the row
+     * @return the square that is represented by the row and column
      */
-    private void drawSelection(Graphics2D g2D) {
-        String selection;
-        if(draggingFrom == null) {
-            if(selected == null) {
-                return;
-            } else selection = selected;
-        } else selection = draggingFrom;
-        LinkedList<String> moves = allLegalMoves.get(selection);
-        if(moves == null) return;
-        Color moveDest = new Color(20, 85, 30, 77);
-        g2D.setColor(moveDest);
-        final Point p = XiangqiPanel.getMouseCoordinates();
-        //System.out.println((p == null)?"null":"(" + p.x + ", " + p.y + ")");
-        for(String s:moves) {
-            int x1 = XiangqiBoard.getColumn(s), 
-                    y1 = XiangqiBoard.getRow(s);
-            int x2 = x1, y2 = y1;
-            if(!fromPerspective) {
-                x2 = 7 - x1;
-                y2 = 7 - y1;
-            }
-            
-            if(p != null) {
-                if(isEmptySquare(x1, y1) && 
-                        (p.x >= x+x2*SQUARE_SIZE && p.x <= x+x2*SQUARE_SIZE+SQUARE_SIZE) && 
-                        (p.y >= y+y2*SQUARE_SIZE && p.y <= y+y2*SQUARE_SIZE+SQUARE_SIZE)) {
-                    g2D.fillRoundRect(x+x2*SQUARE_SIZE, 
-                            y+y2*SQUARE_SIZE, SQUARE_SIZE, SQUARE_SIZE, 16, 16);
-                    continue;
-                }
-            }
-            if(isEmptySquare(x1, y1)) {
-                g2D.fillOval(x+x2*SQUARE_SIZE+CENTER_OFFSET, y+y2*SQUARE_SIZE+CENTER_OFFSET, 14, 14);
-            } else {
-                /*
-                1___2
-                 | |
-                4---3
-                */
-                Point one = new Point(x+x2*SQUARE_SIZE, y+y2*SQUARE_SIZE), 
-                        two = new Point(x+x2*SQUARE_SIZE + SQUARE_SIZE, y+y2*SQUARE_SIZE), 
-                        three = new Point(x+x2*SQUARE_SIZE + SQUARE_SIZE, y+y2*SQUARE_SIZE + SQUARE_SIZE), 
-                        four = new Point(x+x2*SQUARE_SIZE, y+y2*SQUARE_SIZE + SQUARE_SIZE);
-                
-                g2D.fillPolygon(new int[]{one.x, one.x, one.x+TRIANGLE_SIZE}, 
-                        new int[]{one.y, one.y+TRIANGLE_SIZE, one.y}, 3); // 1
-                g2D.fillPolygon(new int[]{two.x, two.x, two.x-TRIANGLE_SIZE}, 
-                        new int[]{two.y, two.y+TRIANGLE_SIZE, two.y}, 3); // 2
-                g2D.fillPolygon(new int[]{three.x, three.x, three.x-TRIANGLE_SIZE}, 
-                        new int[]{three.y, three.y-TRIANGLE_SIZE, three.y}, 3); // 3
-                g2D.fillPolygon(new int[]{four.x, four.x, four.x+TRIANGLE_SIZE}, 
-                        new int[]{four.y, four.y-TRIANGLE_SIZE, four.y}, 3); // 4
-            }
-        }
-        Color selectionColor = new Color(20, 85, 30, 128);
-        g2D.setColor(selectionColor);
-        if(fromPerspective) {
-            g2D.fillRoundRect(x+XiangqiBoard.getColumn(selection)*SQUARE_SIZE, 
-                    y+XiangqiBoard.getRow(selection)*SQUARE_SIZE, SQUARE_SIZE, SQUARE_SIZE, 16, 16);
-        } else {
-            g2D.fillRoundRect(x+(9-XiangqiBoard.getColumn(selection))*SQUARE_SIZE, 
-                    y+(9-XiangqiBoard.getRow(selection))*SQUARE_SIZE, SQUARE_SIZE, SQUARE_SIZE, 16, 16);
-        }
+    public static String toSquare(int column, int row) {
+        if(isValidSquare(column, row)) {
+            return SQUARE_NAMES[toSquareIndex(column, row)];
+        } else return "" + (char)('a' + column) + (10 - row);
+    }
+    
+    /**
+     * Determines the square represented by a square index
+     * @param square the square index
+     * @return the square that is represented by the square index
+     */
+    public static String toSquare(int square) {
+        return SQUARE_NAMES[square];
+    }
+    
+    /**
+     * Determines the square index represented by the row and column<br>
+     * <br>
+     * Square indices run from 0 (a10) to 89 (i1), row by row:<br>
+     * <code>index = row * 9 + column</code>
+     * @param column the column
+     * @param row the row
+     * @return the square index that is represented by the row and column
+     */
+    public static int toSquareIndex(int column, int row) {
+        return row * 9 + column;
+    }
+    
+    /**
+     * Determines the square index represented by a square
+     * @param s the square, i.e. "e10"
+     * @return the square index that is represented by the square
+     */
+    public static int toSquareIndex(String s) {
+        if(isValidSquare(s)) {
+            return toSquareIndex(s.charAt(0)-'a', 10 - Integer.parseInt(s.substring(1)));
+        } else throw new IllegalArgumentException("Invalid square");
     }
     
     /**
-     * Draws whether either king is in check
-     * @param g2D the Graphics2D to draw on
+     * Recalculates all of the moves on a square
      */
-    private void drawCheck(Graphics2D g2D) {
-        float[] fractions = new float[]{ 0.0f, 0.25f, 0.89f, 1.0f };
-        Color[] colors = new Color[]{
-            new Color(255, 0, 0, 255), new Color(231, 0, 0, 255), 
-            new Color(169, 0, 0, 0), new Color(158, 0, 0, 0)
-        };
-        if(inCheck(playerIsRed)) {
-            String generalAt = generalPos.get(playerIsRed);
-            int col = getColumn(generalAt), row = getRow(generalAt);
-            if(!fromPerspective) {
-                col = 7 - col;
-                row = 7 - row;
+    public void recalculateMoves() {
+        legalMoves.clear();
+        generateLegalMoves(legalMoves);
+    }
+    
+    /**
+     * Adds all of the moves of the side to move to a list, without checking for checks
+     * @param moves the list to add the packed moves to
+     */
+    public void generateMoves(MoveList moves) {
+        for(int square = 0; square < BOARD_SIZE; square++) {
+            if(board[square] == null) continue;
+            if(board[square].isRed == playerIsRed) {
+                board[square].generateMoves(this, square, moves);
             }
-            g2D.setPaint(
-                    new RadialGradientPaint(
-                            (SQUARE_SIZE/2) + (col*SQUARE_SIZE) + x, 
-                            (SQUARE_SIZE/2) + (row*SQUARE_SIZE) + y, 
-                            SQUARE_SIZE*3/4, fractions, colors
-                    )
-            );
-            g2D.fillRoundRect(col*SQUARE_SIZE + x, row*SQUARE_SIZE + y, 
-                    SQUARE_SIZE, SQUARE_SIZE, 16, 16);
         }
     }
     
     /**
-     * Draws the dragged piece
-     * @param g2D the Graphics2D to draw on
+     * Adds only the captures of the side to move to a list, without checking for checks
+     * @param moves the list to add the packed moves to
      */
-    private void drawDraggedPiece(Graphics2D g2D) {
-        if(fakeDraggingFrom != null) {
-            int midX = lastPoint.x - (SQUARE_SIZE/2), 
-                midY = lastPoint.y - (SQUARE_SIZE/2);
-            getPiece(fakeDraggingFrom).draw(g2D, midX, midY, SQUARE_SIZE, SQUARE_SIZE);
-        }
-        if(draggingFrom != null) {
-            int midX = lastPoint.x - (SQUARE_SIZE/2), 
-                midY = lastPoint.y - (SQUARE_SIZE/2);
-            getPiece(draggingFrom).draw(g2D, midX, midY, SQUARE_SIZE, SQUARE_SIZE);
+    public void generateCaptures(MoveList moves) {
+        for(int square = 0; square < BOARD_SIZE; square++) {
+            if(board[square] == null) continue;
+            if(board[square].isRed == playerIsRed) {
+                board[square].generateCaptures(this, square, moves);
+            }
         }
     }
     
     /**
-     * Constructor from a previous XiangqiBoard
-     * @param xb the XiangqiBoard to duplicate
+     * Adds all of the legal moves of the side to move to a list
+     * @param moves the list to add the packed moves to
      */
-    public XiangqiBoard(XiangqiBoard xb) {
-        this();
-        for(int i = 0; i < xb.board.length; i++) {
-            System.arraycopy(xb.board[i], 0, board[i], 0, xb.board[i].length);
+    public void generateLegalMoves(MoveList moves) {
+        for(int square = 0; square < BOARD_SIZE; square++) {
+            if(board[square] == null) continue;
+            if(board[square].isRed == playerIsRed) {
+                board[square].legalMoves(this, square, moves);
+            }
         }
     }
     
     /**
-     * Determines the square represented by the row and column
-     * @param column the column
-     * @param row the row
-     * @return the square that is represented by the row and column
+     * Returns the legal moves found by the last <code>recalculateMoves</code>
+     * @return the legal moves of the side to move
      */
-    public static String toSquare(int column, int row) {
-        return "" + (char)('a' + column) + (10 - row);
+    public MoveList getLegalMoves() {
+        return legalMoves;
     }
     
     /**
-     * Recalculates all of the moves on a square
+     * Determines whether the side to move can legally move from one square to another
+     * @param fromWhere the square index to move from
+     * @param toWhere the square index to move to
+     * @return whether the move is legal
      */
-    public void recalculateMoves() {
-        allLegalMoves = new HashMap<>();
-        for(int i = 0; i < board.length; i++) {
-            for(int j = 0; j < board[i].length; j++) {
-                if(board[i][j] == null) continue;
-                if(board[i][j].isRed == playerIsRed) {
-                    String current = XiangqiBoard.toSquare(i, j);
-                    LinkedList<String> moves = board[i][j].legalMoves(this, current);
-                    allLegalMoves.put(current, moves);
-                }
-            }
-        }
+    public boolean isLegalMove(int fromWhere, int toWhere) {
+        return legalMoves.contains(fromWhere, toWhere);
     }
     
     /**
@@ -459,6 +361,16 @@ public class XiangqiBoard {
         } else throw new IllegalArgumentException("Invalid square");
     }
     
+    /**
+     * Determines which row a square index is referring to
+     * @param square the square index
+     * @return the row
+     * @see #getRow(java.lang.String) 
+     */
+    public static int getRow(int square) {
+        return ROW_OF[square];
+    }
+    
     /**
      * Determines which column a square is referring to<br>
      * <br>
@@ -475,6 +387,16 @@ public class XiangqiBoard {
         } else throw new IllegalArgumentException("Invalid square");
     }
     
+    /**
+     * Determines which column a square index is referring to
+     * @param square the square index
+     * @return the column
+     * @see #getColumn(java.lang.String) 
+     */
+    public static int getColumn(int square) {
+        return COLUMN_OF[square];
+    }
+    
     /**
      * Determines where a square is after a shift (a.k.a. moving it left and right, up and down)
      * @param col current column
@@ -509,6 +431,20 @@ public class XiangqiBoard {
         } else throw new IllegalArgumentException("Invalid square");
     }
     
+    /**
+     * Determines where a square index is after a shift
+     * @param square the current square index
+     * @param colShift how much to shift the columns
+     * @param rowShift how much to shift the rows
+     * @return the shifted square index, or <code>NO_SQUARE</code> if it is off the board
+     */
+    public static int shift(int square, int colShift, int rowShift) {
+        int shiftedCol = COLUMN_OF[square] + colShift, 
+                shiftedRow = ROW_OF[square] + rowShift;
+        return (isValidSquare(shiftedCol, shiftedRow)) ? 
+                toSquareIndex(shiftedCol, shiftedRow) : NO_SQUARE;
+    }
+    
     /**
      * Checks if a shift is valid
      * @param col current column
@@ -538,6 +474,17 @@ public class XiangqiBoard {
         );
     }
     
+    /**
+     * Checks if this shift is valid
+     * @param square current square index
+     * @param colShift how much to shift the columns
+     * @param rowShift how much to shift the rows
+     * @return whether the shift is valid
+     */
+    public static boolean isValidShift(int square, int colShift, int rowShift) {
+        return shift(square, colShift, rowShift) != NO_SQUARE;
+    }
+    
     
     /**
      * Determines which piece occupies a square
@@ -545,9 +492,7 @@ public class XiangqiBoard {
      * @return the piece on that square, and if none, null
      */
     public AbstractPiece getPiece(String square) {
-        if(isValidSquare(square)) {
-            return board[getColumn(square)][getRow(square)];
-        } else throw new IllegalArgumentException("Invalid square");
+        return board[toSquareIndex(square)];
     }
     
     /**
@@ -559,10 +504,19 @@ public class XiangqiBoard {
      */
     public AbstractPiece getPiece(int col, int row) {
         if(isValidSquare(col, row)) {
-            return board[col][row];
+            return board[toSquareIndex(col, row)];
         } else throw new IllegalArgumentException("Invalid square");
     }
     
+    /**
+     * Determines which piece occupies a square index
+     * @param square a square index
+     * @return the piece on that square, and if none, null
+     */
+    public AbstractPiece getPiece(int square) {
+        return board[square];
+    }
+    
     /**
      * Determines whether a square is empty
      * @param square a square
@@ -582,6 +536,25 @@ public class XiangqiBoard {
         return getPiece(col, row) == null;
     }
     
+    /**
+     * Determines the code of the piece on a square index
+     * @param square a square index
+     * @return the code of the piece on that square, and if none, 0
+     * @see AbstractPiece#getCode() 
+     */
+    public int getPieceCode(int square) {
+        return (board[square] == null) ? 0 : board[square].getCode();
+    }
+    
+    /**
+     * Determines whether a square index is empty
+     * @param square a square index
+     * @return whether that square is empty
+     */
+    public boolean isEmptySquare(int square) {
+        return board[square] == null;
+    }
+    
     /**
      * Determines the validity of the square
      * @param s a square
@@ -616,41 +589,253 @@ public class XiangqiBoard {
         return col >= 0 && col <= 8 && row >= 0 && row <= 9;
     }
     
+    /**
+     * Determines the validity of the square index
+     * @param square the square index
+     * @return whether the square index is valid
+     */
+    public static boolean isValidSquare(int square) {
+        return square >= 0 && square < BOARD_SIZE;
+    }
+    
     /**
      * Determines whether one side's general is in check
      * @param isRed whether the side to check is red (PUN INTENDED)
      * @return whether the side is in check
      */
     public boolean inCheck(boolean isRed) {
-        for(int i = 0;i<8;i++) {
-            for(int j = 0;j<8;j++) {
-                AbstractPiece ap = getPiece(i, j);//lit dude lit
-                if(ap != null) {
-                    if(ap.isRed ^ isRed) {
-                        //if(ap.legalCaptures(this, XiangqiBoard.toSquare(i, j)).contains(generalPos))
-                        // if the current opposite-colored piece can eat the king on the next move
-                        if(ap.isAllLegalMove(this, XiangqiBoard.toSquare(i, j), generalPos.get(isRed))) {
-                            return true;
-                        }
-                    }
+        return isSquareAttacked(getGeneralSquare(isRed), !isRed);
+    }
+    
+    /**
+     * The column and row shifts of the four lines through a square
+     */
+    private static final int[] LINE_COL_SHIFTS = {1, -1, 0, 0}, 
+            LINE_ROW_SHIFTS = {0, 0, 1, -1};
+    
+    /**
+     * The column and row shifts of the four diagonal neighbors of a square
+     */
+    private static final int[] DIAGONAL_COL_SHIFTS = {1, 1, -1, -1}, 
+            DIAGONAL_ROW_SHIFTS = {1, -1, 1, -1};
+    
+    /**
+     * The column and row shifts from a square to every horse that could attack it, 
+     * and to the leg that each of those horses would need to be empty
+     */
+    private static final int[] HORSE_COL_SHIFTS = {2, 2, -2, -2, 1, -1, 1, -1}, 
+            HORSE_ROW_SHIFTS = {1, -1, 1, -1, 2, 2, -2, -2}, 
+            HORSE_LEG_COL_SHIFTS = {1, 1, -1, -1, 1, -1, 1, -1}, 
+            HORSE_LEG_ROW_SHIFTS = {1, -1, 1, -1, 1, 1, -1, -1};
+    
+    /**
+     * Determines whether a side attacks a square, looking outward from the square.<br>
+     * Generals only attack along a file if the square holds the other general.
+     * @param square the square index
+     * @param byRed whether the attacking side is red
+     * @return whether the square is attacked
+     */
+    public boolean isSquareAttacked(int square, boolean byRed) {
+        // chariots, cannons and generals along the lines
+        for(int i = 0; i < 4; i++) {
+            int colShift = LINE_COL_SHIFTS[i], rowShift = LINE_ROW_SHIFTS[i];
+            int neighbor = shift(square, colShift, rowShift), temp = neighbor;
+            while(temp != NO_SQUARE && board[temp] == null) 
+                temp = shift(temp, colShift, rowShift);
+            if(temp == NO_SQUARE) continue;
+            AbstractPiece ap = board[temp];
+            if(ap.isRed == byRed) {
+                if(ap instanceof Chariot) return true;
+                if(ap instanceof General) {
+                    if(temp == neighbor && insideFortress(square, byRed)) return true;
+                    if(colShift == 0 && board[square] instanceof General) return true;
                 }
             }
+            // jump over the screen
+            temp = shift(temp, colShift, rowShift);
+            while(temp != NO_SQUARE && board[temp] == null) 
+                temp = shift(temp, colShift, rowShift);
+            if(temp != NO_SQUARE && board[temp].isRed == byRed && board[temp] instanceof Cannon) 
+                return true;
+        }
+        
+        // horses, whose legs are next to the square diagonally
+        for(int i = 0; i < 8; i++) {
+            int temp = shift(square, HORSE_COL_SHIFTS[i], HORSE_ROW_SHIFTS[i]);
+            if(temp == NO_SQUARE || !(board[temp] instanceof Horse) || board[temp].isRed != byRed) 
+                continue;
+            if(board[shift(square, HORSE_LEG_COL_SHIFTS[i], HORSE_LEG_ROW_SHIFTS[i])] == null) 
+                return true;
+        }
+        
+        // pawns in front of and beside the square
+        int temp = shift(square, 0, (byRed) ? 1 : -1);
+        if(temp != NO_SQUARE && board[temp] instanceof Pawn && board[temp].isRed == byRed) 
+            return true;
+        if(!behindRiver(square, byRed)) {
+            temp = shift(square, 1, 0);
+            if(temp != NO_SQUARE && board[temp] instanceof Pawn && board[temp].isRed == byRed) 
+                return true;
+            temp = shift(square, -1, 0);
+            if(temp != NO_SQUARE && board[temp] instanceof Pawn && board[temp].isRed == byRed) 
+                return true;
+        }
+        
+        // advisors and elephants along the diagonals
+        boolean inFortress = insideFortress(square, byRed), 
+                ownSide = behindRiver(square, byRed);
+        if(!inFortress && !ownSide) return false;
+        for(int i = 0; i < 4; i++) {
+            int eye = shift(square, DIAGONAL_COL_SHIFTS[i], DIAGONAL_ROW_SHIFTS[i]);
+            if(eye == NO_SQUARE) continue;
+            if(board[eye] == null) {
+                if(!ownSide) continue;
+                temp = shift(eye, DIAGONAL_COL_SHIFTS[i], DIAGONAL_ROW_SHIFTS[i]);
+                if(temp != NO_SQUARE && board[temp] instanceof Elephant && board[temp].isRed == byRed) 
+                    return true;
+            } else if(inFortress && board[eye] instanceof Advisor && board[eye].isRed == byRed) {
+                return true;
+            }
         }
         return false;
     }
     
+    /**
+     * Finds the least valuable piece of a side that attacks a square, 
+     * looking outward from the square like <code>isSquareAttacked</code>.<br>
+     * The general comes last, whatever the piece values say.
+     * @param square the square index
+     * @param byRed whether the attacking side is red
+     * @return the square index of the attacker, or <code>NO_SQUARE</code>
+     */
+    private int leastValuableAttacker(int square, boolean byRed) {
+        int side = (byRed) ? 0 : AbstractPiece.BLACK_CODE;
+        
+        // pawns in front of and beside the square
+        int temp = shift(square, 0, (byRed) ? 1 : -1);
+        if(temp != NO_SQUARE && getPieceCode(temp) == (AbstractPiece.PAWN | side)) return temp;
+        if(!behindRiver(square, byRed)) {
+            temp = shift(square, 1, 0);
+            if(temp != NO_SQUARE && getPieceCode(temp) == (AbstractPiece.PAWN | side)) return temp;
+            temp = shift(square, -1, 0);
+            if(temp != NO_SQUARE && getPieceCode(temp) == (AbstractPiece.PAWN | side)) return temp;
+        }
+        
+        // advisors and elephants along the diagonals
+        boolean inFortress = insideFortress(square, byRed), 
+                ownSide = behindRiver(square, byRed);
+        if(inFortress || ownSide) {
+            for(int i = 0; i < 4; i++) {
+                int eye = shift(square, DIAGONAL_COL_SHIFTS[i], DIAGONAL_ROW_SHIFTS[i]);
+                if(eye == NO_SQUARE) continue;
+                if(board[eye] == null) {
+                    if(!ownSide) continue;
+                    temp = shift(eye, DIAGONAL_COL_SHIFTS[i], DIAGONAL_ROW_SHIFTS[i]);
+                    if(temp != NO_SQUARE && getPieceCode(temp) == (AbstractPiece.ELEPHANT | side)) 
+                        return temp;
+                } else if(inFortress && getPieceCode(eye) == (AbstractPiece.ADVISOR | side)) {
+                    return eye;
+                }
+            }
+        }
+        
+        // horses, whose legs are next to the square diagonally
+        for(int i = 0; i < 8; i++) {
+            temp = shift(square, HORSE_COL_SHIFTS[i], HORSE_ROW_SHIFTS[i]);
+            if(temp == NO_SQUARE || getPieceCode(temp) != (AbstractPiece.HORSE | side)) continue;
+            if(board[shift(square, HORSE_LEG_COL_SHIFTS[i], HORSE_LEG_ROW_SHIFTS[i])] == null) 
+                return temp;
+        }
+        
+        // cannons, chariots and generals along the lines
+        int cannon = NO_SQUARE, chariot = NO_SQUARE, general = NO_SQUARE;
+        for(int i = 0; i < 4; i++) {
+            int colShift = LINE_COL_SHIFTS[i], rowShift = LINE_ROW_SHIFTS[i];
+            int neighbor = shift(square, colShift, rowShift);
+            temp = neighbor;
+            while(temp != NO_SQUARE && board[temp] == null) 
+                temp = shift(temp, colShift, rowShift);
+            if(temp == NO_SQUARE) continue;
+            int code = getPieceCode(temp);
+            if(code == (AbstractPiece.CHARIOT | side)) {
+                chariot = temp;
+            } else if(code == (AbstractPiece.GENERAL | side)) {
+                if((temp == neighbor && inFortress) 
+                        || (colShift == 0 && board[square] instanceof General)) general = temp;
+            }
+            // jump over the screen
+            temp = shift(temp, colShift, rowShift);
+            while(temp != NO_SQUARE && board[temp] == null) 
+                temp = shift(temp, colShift, rowShift);
+            if(temp != NO_SQUARE && getPieceCode(temp) == (AbstractPiece.CANNON | side)) 
+                cannon = temp;
+        }
+        if(cannon != NO_SQUARE) return cannon;
+        if(chariot != NO_SQUARE) return chariot;
+        return general;
+    }
+    
+    /**
+     * Works out what a capture wins once every capture back on its target 
+     * square has been made, each side capturing with its least valuable 
+     * attacker and stopping whenever going on would lose more.<br>
+     * The pieces really leave their squares as they capture, so cannon 
+     * screens, horse legs and generals facing each other change as they 
+     * would in the game. Pins are ignored, but a general never captures 
+     * onto a square the other side still attacks.
+     * @param move a packed move
+     * @return how much the side making the move gains, by <code>Evaluation.value</code>
+     */
+    public int see(int move) {
+        int from = Move.getFrom(move), to = Move.getTo(move);
+        AbstractPiece captured = board[to], onSquare = board[from];
+        int[] gains = seeGains;
+        gains[0] = Evaluation.value(Move.getCaptured(move) & ~AbstractPiece.BLACK_CODE);
+        seeSquares[0] = from;
+        seePieces[0] = onSquare;
+        board[to] = onSquare;
+        board[from] = null;
+        
+        int depth = 0;
+        boolean redCapturing = !onSquare.isRed;
+        while(true) {
+            int attacker = leastValuableAttacker(to, redCapturing);
+            if(attacker == NO_SQUARE) break;
+            // neither side can lose by stopping here
+            if(Math.max(-gains[depth], Evaluation.value(onSquare.getType()) - gains[depth]) < 0) break;
+            AbstractPiece ap = board[attacker];
+            board[to] = ap;
+            board[attacker] = null;
+            seeSquares[depth + 1] = attacker;
+            seePieces[depth + 1] = ap;
+            if(ap instanceof General && leastValuableAttacker(to, !redCapturing) != NO_SQUARE) {
+                board[attacker] = ap;
+                break;
+            }
+            depth++;
+            gains[depth] = Evaluation.value(onSquare.getType()) - gains[depth - 1];
+            onSquare = ap;
+            redCapturing = !redCapturing;
+        }
+        
+        for(int i = depth; i >= 0; i--) {
+            board[seeSquares[i]] = seePieces[i];
+        }
+        board[to] = captured;
+        while(depth > 0) {
+            gains[depth - 1] = -Math.max(-gains[depth - 1], gains[depth]);
+            depth--;
+        }
+        return gains[0];
+    }
+    
     /**
      * Moves a piece from fromWhere to toWhere
      * @param fromWhere from where a piece is moved
      * @param toWhere where to move a piece
      */
     public void movePiece(String fromWhere, String toWhere) {
-        movePiece(
-                XiangqiBoard.getColumn(fromWhere), 
-                XiangqiBoard.getRow(fromWhere), 
-                XiangqiBoard.getColumn(toWhere), 
-                XiangqiBoard.getRow(toWhere)
-        );
+        movePiece(toSquareIndex(fromWhere), toSquareIndex(toWhere));
     }
     
     /**
@@ -661,10 +846,18 @@ public class XiangqiBoard {
      * @param toWhereY where to move a piece
      */
     public void movePiece(int fromWhereX, int fromWhereY, int toWhereX, int toWhereY) {
-        maybeMove(fromWhereX, fromWhereY, toWhereX, toWhereY);
-        System.out.println("Moved: " + playerIsRed);
-        playerIsRed = !playerIsRed;
+        movePiece(toSquareIndex(fromWhereX, fromWhereY), toSquareIndex(toWhereX, toWhereY));
+    }
+    
+    /**
+     * Moves a piece from one square index to another
+     * @param fromWhere from which square index a piece is moved
+     * @param toWhere to which square index to move a piece
+     */
+    public void movePiece(int fromWhere, int toWhere) {
+        makeMove(Move.create(fromWhere, toWhere, getPieceCode(fromWhere), getPieceCode(toWhere)));
         recalculateMoves();
+        fireBoardChanged();
         //updatePos(miniFEN());
         /*if(checkMated(playerIsRed)) System.out.println("Checkmate!\n");
         else if(inCheck(playerIsRed)) {
@@ -678,10 +871,7 @@ public class XiangqiBoard {
      * @param toWhere to where to move a piece
      */
     public void maybeMove(String fromWhere, String toWhere) {
-        maybeMove(
-                getColumn(fromWhere), getRow(fromWhere), 
-                getColumn(toWhere), getRow(toWhere)
-        );
+        maybeMove(toSquareIndex(fromWhere), toSquareIndex(toWhere));
     }
     
     /**
@@ -692,40 +882,241 @@ public class XiangqiBoard {
      * @param toWhereY to which row to move a piece
      */
     public void maybeMove(int fromWhereX, int fromWhereY, int toWhereX, int toWhereY) {
-        board[toWhereX][toWhereY] = board[fromWhereX][fromWhereY];
-        board[fromWhereX][fromWhereY] = null;
+        maybeMove(toSquareIndex(fromWhereX, fromWhereY), toSquareIndex(toWhereX, toWhereY));
+    }
+    
+    /**
+     * Used to check whether this move is legal
+     * @param fromWhere from which square index to move a piece
+     * @param toWhere to which square index to move a piece
+     */
+    public void maybeMove(int fromWhere, int toWhere) {
+        AbstractPiece moved = board[fromWhere];
+        hash ^= Zobrist.piece(moved.getCode(), fromWhere) ^ Zobrist.piece(moved.getCode(), toWhere)
+                ^ Zobrist.piece(getPieceCode(toWhere), toWhere);
+        updateScores(moved.getCode(), fromWhere, toWhere, getPieceCode(toWhere), 1);
+        board[toWhere] = moved;
+        board[fromWhere] = null;
+        if(moved instanceof General) {
+            if(moved.isRed) redGeneral = toWhere;
+            else blackGeneral = toWhere;
+        }
+    }
+    
+    /**
+     * Makes a move in place and passes the turn to the other side.<br>
+     * The move can be taken back with <code>unmakeMove</code>.
+     * @param move a packed move
+     * @see Move
+     */
+    public void makeMove(int move) {
+        int from = Move.getFrom(move), to = Move.getTo(move);
+        if(undoSize == undoMoves.length) growUndoStack(undoSize * 2);
+        undoMoves[undoSize] = move;
+        undoCaptured[undoSize] = board[to];
+        undoRedGeneral[undoSize] = redGeneral;
+        undoBlackGeneral[undoSize] = blackGeneral;
+        undoHash[undoSize] = hash;
+        undoSize++;
+        
+        AbstractPiece moved = board[from];
+        hash ^= Zobrist.piece(moved.getCode(), from) ^ Zobrist.piece(moved.getCode(), to)
+                ^ Zobrist.piece(getPieceCode(to), to) ^ Zobrist.SIDE;
+        updateScores(moved.getCode(), from, to, getPieceCode(to), 1);
+        board[to] = moved;
+        board[from] = null;
+        if(moved instanceof General) {
+            if(moved.isRed) redGeneral = to;
+            else blackGeneral = to;
+        }
+        playerIsRed = !playerIsRed;
+        assert hash == computeHash() : "Hash out of sync after " + Move.toString(move);
+    }
+    
+    /**
+     * Takes back the last move made by <code>makeMove</code>.
+     */
+    public void unmakeMove() {
+        undoSize--;
+        int move = undoMoves[undoSize];
+        int from = Move.getFrom(move), to = Move.getTo(move);
+        board[from] = board[to];
+        board[to] = undoCaptured[undoSize];
+        undoCaptured[undoSize] = null;
+        redGeneral = undoRedGeneral[undoSize];
+        blackGeneral = undoBlackGeneral[undoSize];
+        hash = undoHash[undoSize];
+        updateScores(Move.getMoved(move), from, to, Move.getCaptured(move), -1);
+        playerIsRed = !playerIsRed;
+    }
+    
+    /**
+     * Passes the turn to the other side without moving.<br>
+     * Not a legal xiangqi move; the search uses it to see whether a 
+     * position is good even after giving the other side a free move.
+     * It can be taken back with <code>unmakeNullMove</code>.
+     */
+    public void makeNullMove() {
+        if(undoSize == undoMoves.length) growUndoStack(undoSize * 2);
+        undoMoves[undoSize] = Move.NONE;
+        undoCaptured[undoSize] = null;
+        undoRedGeneral[undoSize] = redGeneral;
+        undoBlackGeneral[undoSize] = blackGeneral;
+        undoHash[undoSize] = hash;
+        undoSize++;
+        hash ^= Zobrist.SIDE;
+        playerIsRed = !playerIsRed;
+    }
+    
+    /**
+     * Takes back the last move made by <code>makeNullMove</code>.
+     */
+    public void unmakeNullMove() {
+        undoSize--;
+        assert undoMoves[undoSize] == Move.NONE : "The last move wasn't a null move";
+        hash = undoHash[undoSize];
+        playerIsRed = !playerIsRed;
+    }
+    
+    /**
+     * Returns the last move made by <code>makeMove</code>
+     * @return the last packed move, or <code>Move.NONE</code> if there is none
+     */
+    public int getLastMove() {
+        return (undoSize == 0) ? Move.NONE : undoMoves[undoSize - 1];
+    }
+    
+    /**
+     * Determines how many moves are on the undo stack
+     * @return how many moves can be taken back
+     */
+    public int getMoveCount() {
+        return undoSize;
+    }
+    
+    /**
+     * Enlarges the undo stack
+     * @param capacity how many moves the undo stack should hold
+     */
+    private void growUndoStack(int capacity) {
+        undoMoves = Arrays.copyOf(undoMoves, capacity);
+        undoCaptured = Arrays.copyOf(undoCaptured, capacity);
+        undoRedGeneral = Arrays.copyOf(undoRedGeneral, capacity);
+        undoBlackGeneral = Arrays.copyOf(undoBlackGeneral, capacity);
+        undoHash = Arrays.copyOf(undoHash, capacity);
+    }
+    
+    /**
+     * Updates the running scores for a piece moving and maybe capturing
+     * @param moved the code of the piece moved
+     * @param from the square index moved from
+     * @param to the square index moved to
+     * @param captured the code of the piece captured, 0 if none
+     * @param sign 1 to make the move, -1 to take it back
+     */
+    private void updateScores(int moved, int from, int to, int captured, int sign) {
+        midgameScore += sign * (Evaluation.midgame(moved, to) - Evaluation.midgame(moved, from)
+                - Evaluation.midgame(captured, to));
+        endgameScore += sign * (Evaluation.endgame(moved, to) - Evaluation.endgame(moved, from)
+                - Evaluation.endgame(captured, to));
+        phase -= sign * Evaluation.phase(captured);
+        if(captured != 0) pieceCounts[captured] -= sign;
+    }
+    
+    /**
+     * Recomputes the running scores and piece counts from scratch
+     */
+    private void computeScores() {
+        midgameScore = endgameScore = phase = 0;
+        Arrays.fill(pieceCounts, 0);
+        for(int square = 0; square < BOARD_SIZE; square++) {
+            if(board[square] == null) continue;
+            int code = board[square].getCode();
+            pieceCounts[code]++;
+            midgameScore += Evaluation.midgame(code, square);
+            endgameScore += Evaluation.endgame(code, square);
+            phase += Evaluation.phase(code);
+        }
+    }
+    
+    /**
+     * Returns the running midgame score of every piece
+     * @return the score, positive if red is better
+     */
+    public int getMidgameScore() {
+        return midgameScore;
+    }
+    
+    /**
+     * Returns the running endgame score of every piece
+     * @return the score, positive if red is better
+     */
+    public int getEndgameScore() {
+        return endgameScore;
+    }
+    
+    /**
+     * Returns how much material is left, as counted by <code>Evaluation.phase</code>
+     * @return the phase, <code>Evaluation.MAX_PHASE</code> at the start
+     */
+    public int getPhase() {
+        return phase;
+    }
+    
+    /**
+     * Returns the Zobrist hash of the current position.<br>
+     * Equal positions with the same side to move have equal hashes.
+     * @return the hash
+     */
+    public long hash() {
+        return hash;
+    }
+    
+    /**
+     * Hashes the current position from scratch.<br>
+     * Slow; used to check the incrementally kept hash.
+     * @return the hash
+     */
+    public long computeHash() {
+        return Zobrist.hash(board, playerIsRed);
+    }
+    
+    /**
+     * Counts the pieces of a type and color
+     * @param isRed whether to count red pieces
+     * @param type the type of piece, i.e. <code>AbstractPiece.CHARIOT</code>
+     * @return how many there are on the board
+     */
+    public int countPieces(boolean isRed, int type) {
+        return pieceCounts[(isRed) ? type : type | AbstractPiece.BLACK_CODE];
     }
     
     /**
      * Refinds both kings.
      */
     public void resetGeneralPos() {
-        String bGeneral = null, rGeneral = null;
-        OUTER: for(int i = 0; i < board.length; i++) {
-            for(int j = 0; j < board[i].length; j++) {
-                if(board[i][j] == null) continue;
-                if(board[i][j].getCharRepresentation().equals("G")) {
-                    if(board[i][j].isRed) {
-                        if(rGeneral == null) {
-                            rGeneral = toSquare(i, j);
-                        } else {
-                            assert false : "There are two red generals?!";
-                        }
-                    } else {
-                        if(bGeneral == null) {
-                            bGeneral = toSquare(i, j);
-                        } else {
-                            assert false : "There are two black generals?!";
-                        }
-                    }
-                    if(rGeneral != null && bGeneral != null) break OUTER;
+        int bGeneral = NO_SQUARE, rGeneral = NO_SQUARE;
+        for(int square = 0; square < BOARD_SIZE; square++) {
+            if(!(board[square] instanceof General)) continue;
+            if(board[square].isRed) {
+                if(rGeneral == NO_SQUARE) {
+                    rGeneral = square;
+                } else {
+                    assert false : "There are two red generals?!";
+                }
+            } else {
+                if(bGeneral == NO_SQUARE) {
+                    bGeneral = square;
+                } else {
+                    assert false : "There are two black generals?!";
                 }
             }
+            if(rGeneral != NO_SQUARE && bGeneral != NO_SQUARE) break;
         }
-        if(rGeneral == null) assert false : "Cannot find red general";
-        if(bGeneral == null) assert false : "Cannot find black general";
-        generalPos.put(true, rGeneral);
-        generalPos.put(false, bGeneral);
+        if(rGeneral == NO_SQUARE) assert false : "Cannot find red general";
+        if(bGeneral == NO_SQUARE) assert false : "Cannot find black general";
+        redGeneral = rGeneral;
+        blackGeneral = bGeneral;
     }
     
     /**
@@ -735,15 +1126,24 @@ public class XiangqiBoard {
      * @return whether the square is inside a fortress
      */
     public static boolean insideFortress(String square, boolean isRed) {
-        if(isValidSquare(square)) {
-            if(XiangqiBoard.getColumn(square) < 3 || XiangqiBoard.getColumn(square) > 5) 
-                return false;
-            if(isRed) {
-                return XiangqiBoard.getRow(square) >= 7 && XiangqiBoard.getRow(square) <= 9;
-            } else {
-                return XiangqiBoard.getRow(square) >= 0 && XiangqiBoard.getRow(square) <= 2;
-            }
-        } else throw new IllegalArgumentException("Invalid square");
+        return insideFortress(toSquareIndex(square), isRed);
+    }
+    
+    /**
+     * Determines whether a square index is inside a colored fortress
+     * @param square the square index to check
+     * @param isRed whether the fortress is red or not
+     * @return whether the square is inside a fortress
+     */
+    public static boolean insideFortress(int square, boolean isRed) {
+        int col = COLUMN_OF[square], row = ROW_OF[square];
+        if(col < 3 || col > 5) 
+            return false;
+        if(isRed) {
+            return row >= 7;
+        } else {
+            return row <= 2;
+        }
     }
     
     /**
@@ -753,13 +1153,21 @@ public class XiangqiBoard {
      * @return whether the piece is behind the river
      */
     public static boolean behindRiver(String square, boolean isRed) {
-        if(isValidSquare(square)) {
-            if(isRed) {
-                return getRow(square) >= 5;
-            } else {
-                return getRow(square) <= 4;
-            }
-        } else throw new IllegalArgumentException("Invalid square");
+        return behindRiver(toSquareIndex(square), isRed);
+    }
+    
+    /**
+     * Determines whether a piece is behind the river
+     * @param square the square index the piece is on
+     * @param isRed whether the piece is red or black
+     * @return whether the piece is behind the river
+     */
+    public static boolean behindRiver(int square, boolean isRed) {
+        if(isRed) {
+            return ROW_OF[square] >= 5;
+        } else {
+            return ROW_OF[square] <= 4;
+        }
     }
     
     /**
@@ -767,13 +1175,11 @@ public class XiangqiBoard {
      * @param isRed whether the king to find again is red
      */
     public void resetGeneralPos(boolean isRed) {
-        for(int i = 0; i < board.length; i++) {
-            for(int j = 0; j < board[i].length; j++) {
-                if(board[i][j] == null) continue;
-                if(board[i][j].getCharRepresentation().equals("G") && (board[i][j].isRed == isRed)) {
-                    generalPos.put(isRed, toSquare(i, j));
-                    return;
-                }
+        for(int square = 0; square < BOARD_SIZE; square++) {
+            if(board[square] instanceof General && (board[square].isRed == isRed)) {
+                if(isRed) redGeneral = square;
+                else blackGeneral = square;
+                return;
             }
         }
     }
@@ -784,152 +1190,200 @@ public class XiangqiBoard {
      * @return a square
      */
     public String getGeneralPos(boolean isRed) {
-        return generalPos.get(isRed);
+        return toSquare(getGeneralSquare(isRed));
     }
     
     /**
-     * Notifies this that the board has been clicked on a square
-     * @param square where the board has been clicked
+     * Determines whether red is to move
+     * @return whether red is to move
      */
-    public void clicked(String square) {
-        if(selected == null) {
-            if(!isEmptySquare(square) && (getPiece(square).isRed == playerIsRed) && 
-                    ((playerIsRed && manipulable == 0) || (!playerIsRed && manipulable == 1) || manipulable == 2)) {
-                selected = square;
-            }
-        } else if(selected.equals(square)) {
-            selected = null;
-        } else {
-            if(!isEmptySquare(square)) {
-                if(getPiece(selected).isLegalMove(this, selected, square)) {
-                    movePiece(selected, square);
-                    selected = null;
-                } else {
-                    if(getPiece(square).isRed == playerIsRed) {
-                        selected = square;
-                    } else {
-                        selected = null;
-                    }
-                }
-            } else {
-                if(getPiece(selected).isLegalMove(this, selected, square)) {
-                    movePiece(selected, square);
-                    selected = null;
-                } else selected = null;
-            }
-        }
-        System.out.println("selected: " + selected);
+    public boolean isRedToMove() {
+        return playerIsRed;
     }
     
     /**
-     * Enables dragging.
-     * @param fromWhere from where the piece is being dragged 
+     * Determines the square index of the General for a certain color
+     * @param isRed which General to find
+     * @return a square index
      */
-    public void enableDragging(String fromWhere) {
-        if(!isEmptySquare(fromWhere)) 
-            if(getPiece(fromWhere).isRed == playerIsRed && 
-                    ((playerIsRed && manipulable == 0) || 
-                    (!playerIsRed && manipulable == 1) || manipulable == 2)) 
-                draggingFrom = fromWhere;
-            else 
-                fakeDraggingFrom = fromWhere;
-        System.out.println("selected: " + selected);
-        System.out.println("draggingFrom: " + draggingFrom);
+    public int getGeneralSquare(boolean isRed) {
+        return (isRed) ? redGeneral : blackGeneral;
     }
     
     /**
-     * Disables dragging.
-     * @param toWhere to where the piece is being dragged 
+     * Returns the current state of the game
+     * @return the current state of the game
      */
-    public void disableDragging(String toWhere) {
-        if(fakeDraggingFrom != null) {
-            fakeDraggingFrom = null;
-            return;
-        }
-        if(draggingFrom == null) return;
-        System.out.println("(" + lastPoint.x + ", " + lastPoint.y + ")");
-        System.out.println(draggingFrom + " -> " + toWhere);
-        /*if(getPiece(draggingFrom).isLegalMove(this, draggingFrom, dropSquare)) {
-            movePiece(draggingFrom, dropSquare);
-        }*/
-        if(getPiece(draggingFrom).isLegalMove(this, draggingFrom, toWhere)) {
-            movePiece(draggingFrom, toWhere);
-        }
-        if(!draggingFrom.equals(selected)) selected = null;
-        draggingFrom = null;
+    public AbstractPiece[] getBoard() {
+        return board;
     }
     
     /**
-     * Determines the square being referenced from a position
-     * @param xPos the x-position of the mouse
-     * @param yPos the y-position of the mouse
-     * @return a square
+     * DO NOT USE OFTEN <br>
+     * Sets this board to a new state, forgetting the moves made before
+     * @param board the board to set to, indexed by square index
      */
-    public String toSquareFromPos(int xPos, int yPos) {
-        int x1 = (xPos - x)/SQUARE_SIZE, y1 = (yPos - y)/SQUARE_SIZE;
-        return toPerspectiveSquare(x1, y1);
+    public void setBoard(AbstractPiece[] board) {
+        this.board = new AbstractPiece[BOARD_SIZE];
+        System.arraycopy(board, 0, this.board, 0, BOARD_SIZE);
+        resetPosition();
     }
     
     /**
-     * Determines the square being referenced in perspective
-     * @param x the x position of the square
-     * @param y the y position of the square
-     * @return the square being referenced in perspective
+     * Starts over from a board that was just replaced: refinds the generals,
+     * empties the undo stack and the legal moves, recomputes the hash and 
+     * the running scores, and tells the listeners
      */
-    public String toPerspectiveSquare(int x, int y) {
-        String output = (fromPerspective) ? toSquare(x, y) : rotateSquare180(x, y);
-        return (isValidSquare(output))? output : null;
+    private void resetPosition() {
+        resetGeneralPos();
+        Arrays.fill(undoCaptured, null);
+        undoSize = 0;
+        hash = computeHash();
+        computeScores();
+        legalMoves.clear();
+        fireBoardChanged();
     }
     
     /**
-     * Rotates a square 180 degrees.
-     * @param s the square to rotate
-     * @return the resulting square
+     * Starts telling a listener whenever this board changes
+     * @param listener the listener
      */
-    public String rotateSquare180(String s) {
-        return rotateSquare180(getColumn(s), getRow(s));
+    public void addListener(XiangqiBoardListener listener) {
+        listeners.add(listener);
     }
     
     /**
-     * Rotates a square 180 degrees.
-     * @param x the x position of the square to rotate
-     * @param y the y position of the square to rotate
-     * @return the resulting square
+     * Stops telling a listener when this board changes
+     * @param listener the listener
      */
-    public String rotateSquare180(int x, int y) {
-        String output = toSquare(7-x, 7-y);
-        return (isValidSquare(output))? output : null;
+    public void removeListener(XiangqiBoardListener listener) {
+        listeners.remove(listener);
     }
-
+    
     /**
-     * Returns the current state of the game
-     * @return the current state of the game
+     * Tells every listener that this board has changed
      */
-    public AbstractPiece[][] getBoard() {
-        return board;
+    private void fireBoardChanged() {
+        for(XiangqiBoardListener listener : listeners) {
+            listener.boardChanged(this);
+        }
     }
     
     /**
-     * DO NOT USE OFTEN <br>
-     * Sets this board to a new state
-     * @param board the board to set to
-     */
-    public void setBoard(AbstractPiece[][] board) {
-        this.board = new AbstractPiece[board.length][board[0].length];
-        for(int i = 0; i < board.length; i++) {
-            for(int j = 0; j < board[i].length; j++) {
-                this.board[i][j] = board[i][j];
+     * The FEN letter of every piece type, lowercase
+     */
+    private static final String FEN_LETTERS = " kabnrcp";
+    
+    /**
+     * Sets up a position from FEN, i.e. the starting position is
+     * <code>rnbakabnr/9/1c5c1/p1p1p1p1p/9/9/P1P1P1P1P/1C5C1/9/RNBAKABNR w</code><br>
+     * Ranks go from black's back rank to red's, uppercase letters are red.
+     * Besides K, A, B, N, R, C and P, the letters G, E and H are read as 
+     * the general, elephant and horse. The side to move is w or r for red
+     * and b for black; anything after it is ignored. The moves made so far
+     * are forgotten.
+     * @param fen the position
+     * @throws IllegalArgumentException if the FEN can't be read
+     */
+    public final void setFEN(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        String[] ranks = fields[0].split("/");
+        if(ranks.length != 10) throw new IllegalArgumentException("FEN needs 10 ranks: " + fen);
+        AbstractPiece[] pieces = new AbstractPiece[BOARD_SIZE];
+        for(int row = 0; row < 10; row++) {
+            int column = 0;
+            for(char c : ranks[row].toCharArray()) {
+                if(c >= '1' && c <= '9') {
+                    column += c - '0';
+                    continue;
+                }
+                int type = fenType(Character.toLowerCase(c));
+                if(type == 0 || column >= 9) 
+                    throw new IllegalArgumentException("Bad rank \"" + ranks[row] + "\" in FEN: " + fen);
+                pieces[toSquareIndex(column++, row)] = AbstractPiece.fromCode(
+                        (Character.isUpperCase(c)) ? type : type | AbstractPiece.BLACK_CODE);
+            }
+            if(column != 9) 
+                throw new IllegalArgumentException("Bad rank \"" + ranks[row] + "\" in FEN: " + fen);
+        }
+        
+        boolean redToMove = true;
+        if(fields.length > 1) {
+            switch(fields[1].toLowerCase()) {
+                case "w":
+                case "r":
+                    break;
+                case "b":
+                    redToMove = false;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Bad side to move in FEN: " + fen);
+            }
+        }
+        
+        int generals = 0;
+        for(AbstractPiece ap : pieces) {
+            if(ap instanceof General) generals += (ap.isRed) ? 1 : 16;
+        }
+        if(generals != 17) throw new IllegalArgumentException("FEN needs one general per side: " + fen);
+        
+        board = pieces;
+        playerIsRed = redToMove;
+        resetPosition();
+    }
+    
+    /**
+     * Determines the piece type of a FEN letter
+     * @param c the lowercase letter
+     * @return the piece type, or 0 if it isn't one
+     */
+    private static int fenType(char c) {
+        switch(c) {
+            case 'g':
+                return AbstractPiece.GENERAL;
+            case 'e':
+                return AbstractPiece.ELEPHANT;
+            case 'h':
+                return AbstractPiece.HORSE;
+            default:
+                int type = FEN_LETTERS.indexOf(c);
+                return (type < 1) ? 0 : type;
+        }
+    }
+    
+    /**
+     * Writes the position in FEN, with the side to move but without
+     * move counters
+     * @return the position, which <code>setFEN</code> reads back
+     */
+    public String toFEN() {
+        StringBuilder sb = new StringBuilder();
+        for(int row = 0; row < 10; row++) {
+            if(row > 0) sb.append('/');
+            int empty = 0;
+            for(int column = 0; column < 9; column++) {
+                AbstractPiece ap = board[toSquareIndex(column, row)];
+                if(ap == null) {
+                    empty++;
+                    continue;
+                }
+                if(empty > 0) sb.append(empty);
+                empty = 0;
+                char c = FEN_LETTERS.charAt(ap.getType());
+                sb.append((ap.isRed) ? Character.toUpperCase(c) : c);
             }
+            if(empty > 0) sb.append(empty);
         }
+        return sb.append((playerIsRed) ? " w" : " b").toString();
     }
     
     /**
      * Prints the current state of the chess board.
      */
     public void printBoard() {
-        for(int i = 0;i<board[0].length;i++) {
-            for(int j = 0;j<board.length;j++) {
-                AbstractPiece ap = board[j][i];
+        for(int i = 0;i<10;i++) {
+            for(int j = 0;j<9;j++) {
+                AbstractPiece ap = board[toSquareIndex(j, i)];
                 if(ap == null) {
                     System.out.print(" ");
                 } else if(ap.isRed) {
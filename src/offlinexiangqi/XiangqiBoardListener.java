@@ -0,0 +1,16 @@
+package offlinexiangqi;
+
+/**
+ * Something that wants to know when a XiangqiBoard changes<br>
+ * <br>
+ * Only whole changes are reported: a piece moved by <code>movePiece</code>
+ * or a new position set. The moves a search makes and takes back are not.
+ * @author Jed Wang
+ */
+public interface XiangqiBoardListener {
+    /**
+     * Called after the board has changed, on the thread that changed it
+     * @param xb the board
+     */
+    public void boardChanged(XiangqiBoard xb);
+}
@@ -0,0 +1,646 @@
+package offlinexiangqi;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Point;
+import java.awt.RadialGradientPaint;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * A class that draws a XiangqiBoard and lets the user move its pieces
+ * @author Jed Wang
+ */
+public class XiangqiBoardView {
+    /**
+     * The game being shown
+     */
+    private final XiangqiBoard xb;
+    
+    /**
+     * Coordinates of the top left corner
+     */
+    private int x, y;
+    
+    /**
+     * The piece's square to be dragging from.<br>
+     * Controls dragging pieces
+     */
+    private String draggingFrom = null;
+    
+    /**
+     * The piece's square to be dragging from.<br>
+     * Controls playing around with pieces
+     */
+    private String fakeDraggingFrom = null;
+    
+    /**
+     * The last known non-null point the mouse was at.<br>
+     * Controls dragging pieces
+     */
+    private Point lastPoint;
+    
+    /**
+     * Where the mouse is, or null if it isn't over the board.<br>
+     * Controls which move target is hovered
+     */
+    private Point mousePoint;
+    
+    /**
+     * What repaints the regions this view changes, or null if nothing does
+     */
+    private RepaintScheduler scheduler;
+    
+    /**
+     * From which perspective the board is to be drawn.
+     */
+    private boolean fromPerspective = true;
+    
+    /**
+     * Which side this player can move pieces for.<br>
+     * 0 == RED<br>
+     * 1 == BLACK<br>
+     * 2 == BOTH
+     */
+    private int manipulable = 2;
+    
+    /**
+     * The selected square
+     */
+    private String selected = null;
+    
+    /**
+     * The board drawn by <code>drawLines</code>, kept until what it was drawn for changes
+     */
+    private BufferedImage boardLayer;
+    
+    /**
+     * The square size the board layer was drawn at
+     */
+    private int boardLayerSquareSize;
+    
+    /**
+     * The perspective the board layer was drawn from
+     */
+    private boolean boardLayerPerspective;
+    
+    /**
+     * The graphics configuration the board layer is compatible with
+     */
+    private GraphicsConfiguration boardLayerConfig;
+    
+    /**
+     * The size of the individual xiangqi squares.
+     */
+    public static final int SQUARE_SIZE = 57;
+    
+    /**
+     * The offset to the center needed for a 13-diameter circle
+     */
+    public static final int CENTER_OFFSET = (SQUARE_SIZE-13)/2;
+    
+    /**
+     * The sizes of the triangles that surround a piece that can be captured
+     */
+    public static final int TRIANGLE_SIZE = (int) ((11.0/51)*SQUARE_SIZE);
+    
+    /**
+     * The colors of the board's border and of the board itself
+     */
+    private static final Color BORDER_COLOR = new Color(181, 136, 99), 
+            BOARD_COLOR = new Color(240, 217, 181);
+    
+    /**
+     * The color the squares of the last move are highlighted with
+     */
+    private static final Color LAST_MOVE_COLOR = new Color(155, 199, 0, 105);
+    
+    /**
+     * The colors of the move targets and of the selected square
+     */
+    private static final Color MOVE_DEST_COLOR = new Color(20, 85, 30, 77), 
+            SELECTION_COLOR = new Color(20, 85, 30, 128);
+    
+    /**
+     * Where the colors of the glow around a general in check are,
+     * from its center out
+     */
+    private static final float[] CHECK_FRACTIONS = { 0.0f, 0.25f, 0.89f, 1.0f };
+    
+    /**
+     * The colors of the glow around a general in check
+     */
+    private static final Color[] CHECK_COLORS = {
+        new Color(255, 0, 0, 255), new Color(231, 0, 0, 255),
+        new Color(169, 0, 0, 0), new Color(158, 0, 0, 0)
+    };
+    
+    /**
+     * A number which represents Red is manipulable.
+     */
+    public static final int WHITE_MANIPULABLE = 0;
+    
+    /**
+     * A number which represents Black is manipulable.
+     */
+    public static final int BLACK_MANIPULABLE = 1;
+    
+    /**
+     * A number which represents both sides is manipulable.
+     */
+    public static final int BOTH_MANIPULABLE = 2;
+    
+    /**
+     * Creates a view of a XiangqiBoard
+     * @param xb the game to show
+     */
+    public XiangqiBoardView(XiangqiBoard xb) {
+        this.xb = xb;
+        x = y = 0;
+    }
+    
+    /**
+     * Returns the game being shown
+     * @return the XiangqiBoard
+     */
+    public XiangqiBoard getBoard() {
+        return xb;
+    }
+    
+    /**
+     * Sets what repaints the regions this view changes.<br>
+     * Without one, the owner has to repaint everything after every change.
+     * @param scheduler the scheduler, or null for none
+     */
+    public void setRepaintScheduler(RepaintScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+    
+    /**
+     * Notifies this that the mouse has moved
+     * @param p where the mouse is, or null if it has left the board
+     */
+    public void mouseMoved(Point p) {
+        if(p != null && p.equals(mousePoint)) return;
+        // the dragged piece follows the mouse
+        if(p != null && (draggingFrom != null || fakeDraggingFrom != null)) {
+            markDirty(spriteBounds(lastPoint));
+            markDirty(spriteBounds(p));
+        }
+        // the hovered move target changes shape
+        if(selectionSquare() != null) {
+            markDirty(squareBoundsAt(mousePoint));
+            markDirty(squareBoundsAt(p));
+        }
+        mousePoint = p;
+        if(p != null) lastPoint = p;
+    }
+    
+    /**
+     * Draws the current state of the chess board
+     * @param g Graphics to draw on
+     */
+    public void draw(Graphics g) {
+        Graphics2D g2D = (Graphics2D) g;
+        g2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        
+        drawBoardLayer(g2D);
+        drawLastMove(g2D);
+        drawCheck(g2D);
+        drawSelection(g2D);
+        drawPieces(g2D);
+        drawDraggedPiece(g2D);
+    }
+    
+    /**
+     * Draws the board itself, which is drawn once and then copied
+     * @param g2D Graphics2D to draw on
+     */
+    private void drawBoardLayer(Graphics2D g2D) {
+        GraphicsConfiguration gc = g2D.getDeviceConfiguration();
+        if(boardLayer == null || boardLayerSquareSize != SQUARE_SIZE 
+                || boardLayerPerspective != fromPerspective || boardLayerConfig != gc) {
+            boardLayer = gc.createCompatibleImage(9*SQUARE_SIZE, 10*SQUARE_SIZE, Transparency.OPAQUE);
+            Graphics2D layer = boardLayer.createGraphics();
+            layer.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            drawLines(layer);
+            layer.dispose();
+            boardLayerSquareSize = SQUARE_SIZE;
+            boardLayerPerspective = fromPerspective;
+            boardLayerConfig = gc;
+        }
+        g2D.drawImage(boardLayer, x, y, null);
+    }
+    
+    /**
+     * Draws the checkered pattern, the river and the palaces, with the
+     * top left corner of the board at (0, 0)
+     * @param g2D Graphics2D to draw on
+     */
+    private void drawLines(Graphics2D g2D) {
+        g2D.setColor(BORDER_COLOR);
+        g2D.fillRect(0, 0, 9*SQUARE_SIZE, 10*SQUARE_SIZE);
+        g2D.setColor(BOARD_COLOR);
+        g2D.fillRect(SQUARE_SIZE / 2, SQUARE_SIZE / 2,
+                8*SQUARE_SIZE, 9*SQUARE_SIZE);
+        g2D.setColor(Color.BLACK);
+        g2D.setStroke(new BasicStroke(4, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_MITER));
+        g2D.drawRect(SQUARE_SIZE/2 - 5, SQUARE_SIZE/2 - 5, 8*SQUARE_SIZE + 10, 9*SQUARE_SIZE + 10);
+        g2D.setStroke(new BasicStroke(2, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_MITER));
+        g2D.drawRect(SQUARE_SIZE/2, SQUARE_SIZE/2, 8*SQUARE_SIZE, 9*SQUARE_SIZE);
+        g2D.drawLine(SQUARE_SIZE/2, SQUARE_SIZE/2 + SQUARE_SIZE*4,
+                SQUARE_SIZE/2 + SQUARE_SIZE*8, SQUARE_SIZE/2 + SQUARE_SIZE*4);
+        g2D.drawLine(SQUARE_SIZE/2, SQUARE_SIZE/2 + SQUARE_SIZE*5,
+                SQUARE_SIZE/2 + SQUARE_SIZE*8, SQUARE_SIZE/2 + SQUARE_SIZE*5);
+        g2D.setStroke(new BasicStroke(0.75f, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_MITER));
+        for(int i = 1; i < 8; i++) {
+            g2D.drawLine(SQUARE_SIZE/2 + SQUARE_SIZE * i, SQUARE_SIZE/2,
+                    SQUARE_SIZE/2 + SQUARE_SIZE * i, SQUARE_SIZE/2 + SQUARE_SIZE*4);
+            g2D.drawLine(SQUARE_SIZE/2 + SQUARE_SIZE * i, SQUARE_SIZE/2 + SQUARE_SIZE*5,
+                    SQUARE_SIZE/2 + SQUARE_SIZE * i, SQUARE_SIZE/2 + SQUARE_SIZE*9);
+        }
+        for(int i = 1; i < 4; i++) {
+            g2D.drawLine(SQUARE_SIZE/2, SQUARE_SIZE/2 + SQUARE_SIZE*i,
+                    SQUARE_SIZE/2 + SQUARE_SIZE*8, SQUARE_SIZE/2 + SQUARE_SIZE*i);
+        }
+        for(int i = 5; i < 9; i++) {
+            g2D.drawLine(SQUARE_SIZE/2, SQUARE_SIZE/2 + SQUARE_SIZE*i,
+                    SQUARE_SIZE/2 + SQUARE_SIZE*8, SQUARE_SIZE/2 + SQUARE_SIZE*i);
+        }
+        g2D.drawLine(SQUARE_SIZE/2 + SQUARE_SIZE*3, SQUARE_SIZE/2, SQUARE_SIZE/2 + SQUARE_SIZE*5, SQUARE_SIZE/2 + SQUARE_SIZE*2);
+        g2D.drawLine(SQUARE_SIZE/2 + SQUARE_SIZE*3, SQUARE_SIZE/2 + SQUARE_SIZE*2, SQUARE_SIZE/2 + SQUARE_SIZE*5, SQUARE_SIZE/2);
+    }
+    
+    /**
+     * Highlights the squares of the last move
+     * @param g2D Graphics2D to draw on
+     */
+    private void drawLastMove(Graphics2D g2D) {
+        g2D.setColor(LAST_MOVE_COLOR);
+        int lastMove = xb.getLastMove();
+        if(lastMove != Move.NONE) {
+            int lastMoveFrom = Move.getFrom(lastMove), lastMoveTo = Move.getTo(lastMove);
+            if(fromPerspective) {
+                g2D.fillRect(XiangqiBoard.getColumn(lastMoveFrom)*SQUARE_SIZE+x,
+                        XiangqiBoard.getRow(lastMoveFrom)*SQUARE_SIZE+y,
+                        SQUARE_SIZE, SQUARE_SIZE);
+                g2D.fillRect(XiangqiBoard.getColumn(lastMoveTo)*SQUARE_SIZE+x,
+                        XiangqiBoard.getRow(lastMoveTo)*SQUARE_SIZE+y,
+                        SQUARE_SIZE, SQUARE_SIZE);
+            } else {
+                g2D.fillRect((9-XiangqiBoard.getColumn(lastMoveFrom))*SQUARE_SIZE+x,
+                        (9-XiangqiBoard.getRow(lastMoveFrom))*SQUARE_SIZE+y,
+                        SQUARE_SIZE, SQUARE_SIZE);
+                g2D.fillRect((9-XiangqiBoard.getColumn(lastMoveTo))*SQUARE_SIZE+x,
+                        (9-XiangqiBoard.getRow(lastMoveTo))*SQUARE_SIZE+y,
+                        SQUARE_SIZE, SQUARE_SIZE);
+            }
+        }
+    }
+    
+    /**
+     * Draws the pieces on the board.
+     * @param g2D Graphics2D to draw on
+     */
+    private void drawPieces(Graphics2D g2D) {
+        int ghost = (draggingFrom == null) ? XiangqiBoard.NO_SQUARE : XiangqiBoard.toSquareIndex(draggingFrom),
+                fakeGhost = (fakeDraggingFrom == null) ? XiangqiBoard.NO_SQUARE : XiangqiBoard.toSquareIndex(fakeDraggingFrom);
+        Rectangle clip = g2D.getClipBounds();
+        for (int square = 0; square < XiangqiBoard.BOARD_SIZE; ++square) {
+            AbstractPiece ap = xb.getPiece(square);
+            if (ap == null) continue;
+            Rectangle bounds = squareBounds(square);
+            if(clip != null && !clip.intersects(bounds)) continue;
+            if (square == ghost || square == fakeGhost) {
+                PieceImages.drawGhost(g2D, ap, bounds.x, bounds.y, SQUARE_SIZE, SQUARE_SIZE);
+            } else {
+                PieceImages.draw(g2D, ap, bounds.x, bounds.y, SQUARE_SIZE, SQUARE_SIZE);
+            }
+        }
+    }
+    
+    /**
+     * Draws the selected pieces
+     * @param g2D Graphics2D to draw on
+     */
+    private void drawSelection(Graphics2D g2D) {
+        String selection = selectionSquare();
+        if(selection == null) return;
+        int selectionAt = XiangqiBoard.toSquareIndex(selection);
+        g2D.setColor(MOVE_DEST_COLOR);
+        final Point p = mousePoint;
+        Rectangle clip = g2D.getClipBounds();
+        for(int i = 0; i < xb.getLegalMoves().size(); i++) {
+            int move = xb.getLegalMoves().get(i);
+            if(Move.getFrom(move) != selectionAt) continue;
+            int x1 = XiangqiBoard.getColumn(Move.getTo(move)),
+                    y1 = XiangqiBoard.getRow(Move.getTo(move));
+            int x2 = x1, y2 = y1;
+            if(!fromPerspective) {
+                x2 = 7 - x1;
+                y2 = 7 - y1;
+            }
+            if(clip != null && !clip.intersects(x+x2*SQUARE_SIZE, y+y2*SQUARE_SIZE, SQUARE_SIZE, SQUARE_SIZE)) 
+                continue;
+            
+            if(p != null) {
+                if(xb.isEmptySquare(x1, y1) &&
+                        (p.x >= x+x2*SQUARE_SIZE && p.x <= x+x2*SQUARE_SIZE+SQUARE_SIZE) &&
+                        (p.y >= y+y2*SQUARE_SIZE && p.y <= y+y2*SQUARE_SIZE+SQUARE_SIZE)) {
+                    g2D.fillRoundRect(x+x2*SQUARE_SIZE,
+                            y+y2*SQUARE_SIZE, SQUARE_SIZE, SQUARE_SIZE, 16, 16);
+                    continue;
+                }
+            }
+            if(xb.isEmptySquare(x1, y1)) {
+                g2D.fillOval(x+x2*SQUARE_SIZE+CENTER_OFFSET, y+y2*SQUARE_SIZE+CENTER_OFFSET, 14, 14);
+            } else {
+                /*
+                1___2
+                 | |
+                4---3
+                */
+                Point one = new Point(x+x2*SQUARE_SIZE, y+y2*SQUARE_SIZE),
+                        two = new Point(x+x2*SQUARE_SIZE + SQUARE_SIZE, y+y2*SQUARE_SIZE),
+                        three = new Point(x+x2*SQUARE_SIZE + SQUARE_SIZE, y+y2*SQUARE_SIZE + SQUARE_SIZE),
+                        four = new Point(x+x2*SQUARE_SIZE, y+y2*SQUARE_SIZE + SQUARE_SIZE);
+                
+                g2D.fillPolygon(new int[]{one.x, one.x, one.x+TRIANGLE_SIZE},
+                        new int[]{one.y, one.y+TRIANGLE_SIZE, one.y}, 3); // 1
+                g2D.fillPolygon(new int[]{two.x, two.x, two.x-TRIANGLE_SIZE},
+                        new int[]{two.y, two.y+TRIANGLE_SIZE, two.y}, 3); // 2
+                g2D.fillPolygon(new int[]{three.x, three.x, three.x-TRIANGLE_SIZE},
+                        new int[]{three.y, three.y-TRIANGLE_SIZE, three.y}, 3); // 3
+                g2D.fillPolygon(new int[]{four.x, four.x, four.x+TRIANGLE_SIZE},
+                        new int[]{four.y, four.y-TRIANGLE_SIZE, four.y}, 3); // 4
+            }
+        }
+        g2D.setColor(SELECTION_COLOR);
+        if(fromPerspective) {
+            g2D.fillRoundRect(x+XiangqiBoard.getColumn(selection)*SQUARE_SIZE,
+                    y+XiangqiBoard.getRow(selection)*SQUARE_SIZE, SQUARE_SIZE, SQUARE_SIZE, 16, 16);
+        } else {
+            g2D.fillRoundRect(x+(9-XiangqiBoard.getColumn(selection))*SQUARE_SIZE,
+                    y+(9-XiangqiBoard.getRow(selection))*SQUARE_SIZE, SQUARE_SIZE, SQUARE_SIZE, 16, 16);
+        }
+    }
+    
+    /**
+     * Draws whether either king is in check
+     * @param g2D the Graphics2D to draw on
+     */
+    private void drawCheck(Graphics2D g2D) {
+        if(xb.inCheck(xb.isRedToMove())) {
+            int generalAt = xb.getGeneralSquare(xb.isRedToMove());
+            int col = XiangqiBoard.getColumn(generalAt), row = XiangqiBoard.getRow(generalAt);
+            if(!fromPerspective) {
+                col = 7 - col;
+                row = 7 - row;
+            }
+            Rectangle clip = g2D.getClipBounds();
+            if(clip != null && !clip.intersects(col*SQUARE_SIZE + x, row*SQUARE_SIZE + y, SQUARE_SIZE, SQUARE_SIZE)) 
+                return;
+            g2D.setPaint(
+                    new RadialGradientPaint(
+                            (SQUARE_SIZE/2) + (col*SQUARE_SIZE) + x,
+                            (SQUARE_SIZE/2) + (row*SQUARE_SIZE) + y,
+                            SQUARE_SIZE*3/4, CHECK_FRACTIONS, CHECK_COLORS
+                    )
+            );
+            g2D.fillRoundRect(col*SQUARE_SIZE + x, row*SQUARE_SIZE + y,
+                    SQUARE_SIZE, SQUARE_SIZE, 16, 16);
+        }
+    }
+    
+    /**
+     * Draws the dragged piece
+     * @param g2D the Graphics2D to draw on
+     */
+    private void drawDraggedPiece(Graphics2D g2D) {
+        if(fakeDraggingFrom != null) {
+            int midX = lastPoint.x - (SQUARE_SIZE/2),
+                midY = lastPoint.y - (SQUARE_SIZE/2);
+            PieceImages.draw(g2D, xb.getPiece(fakeDraggingFrom), midX, midY, SQUARE_SIZE, SQUARE_SIZE);
+        }
+        if(draggingFrom != null) {
+            int midX = lastPoint.x - (SQUARE_SIZE/2),
+                midY = lastPoint.y - (SQUARE_SIZE/2);
+            PieceImages.draw(g2D, xb.getPiece(draggingFrom), midX, midY, SQUARE_SIZE, SQUARE_SIZE);
+        }
+    }
+    
+    /**
+     * Notifies this that the board has been clicked on a square
+     * @param square where the board has been clicked
+     */
+    public void clicked(String square) {
+        Rectangle before = interactionBounds();
+        if(selected == null) {
+            if(!xb.isEmptySquare(square) && (xb.getPiece(square).isRed == xb.isRedToMove()) &&
+                    ((xb.isRedToMove() && manipulable == 0) || (!xb.isRedToMove() && manipulable == 1) || manipulable == 2)) {
+                selected = square;
+            }
+        } else if(selected.equals(square)) {
+            selected = null;
+        } else {
+            if(!xb.isEmptySquare(square)) {
+                if(xb.isLegalMove(XiangqiBoard.toSquareIndex(selected), XiangqiBoard.toSquareIndex(square))) {
+                    xb.movePiece(selected, square);
+                    selected = null;
+                } else {
+                    if(xb.getPiece(square).isRed == xb.isRedToMove()) {
+                        selected = square;
+                    } else {
+                        selected = null;
+                    }
+                }
+            } else {
+                if(xb.isLegalMove(XiangqiBoard.toSquareIndex(selected), XiangqiBoard.toSquareIndex(square))) {
+                    xb.movePiece(selected, square);
+                    selected = null;
+                } else selected = null;
+            }
+        }
+        markChanged(before);
+    }
+    
+    /**
+     * Enables dragging.
+     * @param fromWhere from where the piece is being dragged
+     */
+    public void enableDragging(String fromWhere) {
+        Rectangle before = interactionBounds();
+        if(!xb.isEmptySquare(fromWhere))
+            if(xb.getPiece(fromWhere).isRed == xb.isRedToMove() &&
+                    ((xb.isRedToMove() && manipulable == 0) ||
+                    (!xb.isRedToMove() && manipulable == 1) || manipulable == 2))
+                draggingFrom = fromWhere;
+            else
+                fakeDraggingFrom = fromWhere;
+        markChanged(before);
+    }
+    
+    /**
+     * Disables dragging.
+     * @param toWhere to where the piece is being dragged
+     */
+    public void disableDragging(String toWhere) {
+        Rectangle before = interactionBounds();
+        if(fakeDraggingFrom != null) {
+            fakeDraggingFrom = null;
+        } else if(draggingFrom != null) {
+            /*if(xb.getPiece(draggingFrom).isLegalMove(this, draggingFrom, dropSquare)) {
+                xb.movePiece(draggingFrom, dropSquare);
+            }*/
+            if(xb.isLegalMove(XiangqiBoard.toSquareIndex(draggingFrom), XiangqiBoard.toSquareIndex(toWhere))) {
+                xb.movePiece(draggingFrom, toWhere);
+            }
+            if(!draggingFrom.equals(selected)) selected = null;
+            draggingFrom = null;
+        }
+        markChanged(before);
+    }
+    
+    /**
+     * Determines which square's moves are shown
+     * @return the dragged or selected square, or null if none or if its
+     * piece can't move now
+     */
+    private String selectionSquare() {
+        String selection = (draggingFrom == null) ? selected : draggingFrom;
+        if(selection == null) return null;
+        int selectionAt = XiangqiBoard.toSquareIndex(selection);
+        if(xb.isEmptySquare(selectionAt) || xb.getPiece(selectionAt).isRed != xb.isRedToMove()) return null;
+        return selection;
+    }
+    
+    /**
+     * Determines where the selection, its move targets, the ghosts and the
+     * dragged piece are drawn, which is everything the mouse can change
+     * without moving a piece
+     * @return the bounds, or null if none of them are drawn
+     */
+    private Rectangle interactionBounds() {
+        Rectangle output = null;
+        String selection = selectionSquare();
+        if(selection != null) {
+            int selectionAt = XiangqiBoard.toSquareIndex(selection);
+            output = squareBounds(selectionAt);
+            for(int i = 0; i < xb.getLegalMoves().size(); i++) {
+                int move = xb.getLegalMoves().get(i);
+                if(Move.getFrom(move) == selectionAt) output.add(squareBounds(Move.getTo(move)));
+            }
+        }
+        for(String from : new String[]{draggingFrom, fakeDraggingFrom}) {
+            if(from == null) continue;
+            Rectangle dragged = squareBounds(XiangqiBoard.toSquareIndex(from));
+            dragged.add(spriteBounds(lastPoint));
+            if(output == null) output = dragged;
+            else output.add(dragged);
+        }
+        return output;
+    }
+    
+    /**
+     * Marks what the mouse could have changed as needing a repaint, both
+     * where it was drawn and where it is drawn now
+     * @param before what <code>interactionBounds</code> was before the change
+     */
+    private void markChanged(Rectangle before) {
+        markDirty(before);
+        markDirty(interactionBounds());
+    }
+    
+    /**
+     * Marks a region as needing a repaint
+     * @param r the region, or null for none
+     */
+    private void markDirty(Rectangle r) {
+        if(r == null || scheduler == null) return;
+        // antialiased edges can reach a pixel past the shape
+        r.grow(1, 1);
+        scheduler.requestRepaint(r);
+    }
+    
+    /**
+     * Determines where a square is drawn
+     * @param square the square index
+     * @return the bounds of the square
+     */
+    private Rectangle squareBounds(int square) {
+        int col = XiangqiBoard.getColumn(square), row = XiangqiBoard.getRow(square);
+        if(!fromPerspective) {
+            col = 9 - col;
+            row = 9 - row;
+        }
+        return new Rectangle(x + col*SQUARE_SIZE, y + row*SQUARE_SIZE, SQUARE_SIZE, SQUARE_SIZE);
+    }
+    
+    /**
+     * Determines the bounds of the square a point is in
+     * @param p the point, or null
+     * @return the bounds, or null if the point is
+     */
+    private Rectangle squareBoundsAt(Point p) {
+        if(p == null) return null;
+        return new Rectangle(x + Math.floorDiv(p.x - x, SQUARE_SIZE)*SQUARE_SIZE, 
+                y + Math.floorDiv(p.y - y, SQUARE_SIZE)*SQUARE_SIZE, SQUARE_SIZE, SQUARE_SIZE);
+    }
+    
+    /**
+     * Determines where a dragged piece is drawn
+     * @param p the point it is centered on, or null
+     * @return the bounds, or null if the point is
+     */
+    private static Rectangle spriteBounds(Point p) {
+        if(p == null) return null;
+        return new Rectangle(p.x - (SQUARE_SIZE/2), p.y - (SQUARE_SIZE/2), SQUARE_SIZE, SQUARE_SIZE);
+    }
+    
+    /**
+     * Determines the square being referenced from a position
+     * @param xPos the x-position of the mouse
+     * @param yPos the y-position of the mouse
+     * @return a square
+     */
+    public String toSquareFromPos(int xPos, int yPos) {
+        int x1 = (xPos - x)/SQUARE_SIZE, y1 = (yPos - y)/SQUARE_SIZE;
+        return toPerspectiveSquare(x1, y1);
+    }
+    
+    /**
+     * Determines the square being referenced in perspective
+     * @param x the x position of the square
+     * @param y the y position of the square
+     * @return the square being referenced in perspective
+     */
+    public String toPerspectiveSquare(int x, int y) {
+        String output = (fromPerspective) ? XiangqiBoard.toSquare(x, y) : rotateSquare180(x, y);
+        return (XiangqiBoard.isValidSquare(output))? output : null;
+    }
+    
+    /**
+     * Rotates a square 180 degrees.
+     * @param s the square to rotate
+     * @return the resulting square
+     */
+    public String rotateSquare180(String s) {
+        return rotateSquare180(XiangqiBoard.getColumn(s), XiangqiBoard.getRow(s));
+    }
+    
+    /**
+     * Rotates a square 180 degrees.
+     * @param x the x position of the square to rotate
+     * @param y the y position of the square to rotate
+     * @return the resulting square
+     */
+    public String rotateSquare180(int x, int y) {
+        String output = XiangqiBoard.toSquare(7-x, 7-y);
+        return (XiangqiBoard.isValidSquare(output))? output : null;
+    }
+}
\ No newline at end of file
@@ -1,41 +1,58 @@
 package offlinexiangqi;
 
+import java.awt.Point;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
 
 /**
- * A MouseListener for the chess application
+ * A MouseListener for the chess application<br>
+ * <br>
+ * Presses, releases and clicks are passed on as they come. Moves and drags
+ * can come many times a frame, so only the latest position is kept and
+ * passed on at the start of the next frame.
  * @author Jed Wang
  */
-public class XiangqiMouseListener implements MouseListener {
-    
+public class XiangqiMouseListener implements MouseListener, MouseMotionListener {
+
     /**
      * Represents mouse pressed
      */
     public static final int MOUSE_PRESSED = 0;
-    
+
     /**
      * Represents mouse released
      */
     public static final int MOUSE_RELEASED = 1;
-    
+
     /**
      * Represents mouse clicked
      */
     public static final int MOUSE_CLICKED = 2;
-    
+
     /**
      * The ChessPanel to notify
      */
     private XiangqiPanel xp;
-    
+
+    /**
+     * The latest position the mouse moved to and not passed on yet,
+     * or null if it left the panel
+     */
+    private Point pendingPoint;
+
+    /**
+     * Whether the mouse moved since the last position passed on
+     */
+    private boolean motionPending = false;
+
     /**
      * Constructor method.
      */
     public XiangqiMouseListener() {
         super();
     }
-    
+
     /**
      * Constructor method.
      * @param xp the ChessPanel to notify
@@ -46,44 +63,63 @@ public class XiangqiMouseListener implements MouseListener {
     }
 
     /**
-     * Outputs an event
-     * @param eventDescription the description of the event
-     * @param e the MouseEvent
+     * Saves where the mouse moved to until the next frame
+     * @param p the position, or null if the mouse left
      */
-    private void eventOutput(String eventDescription, MouseEvent e) {
-        System.out.println(eventDescription + " detected on "
-                + e.getComponent().getClass().getName()
-                + " @ (" + e.getX() + ", " + e.getY() + ").");
+    private void motion(Point p) {
+        pendingPoint = p;
+        if(!motionPending) {
+            motionPending = true;
+            xp.requestFrame();
+        }
     }
-     
+
+    /**
+     * Passes on where the mouse last moved to, if it moved since the last
+     * time. Called at the start of each frame.
+     */
+    public void flushMotion() {
+        if(!motionPending) return;
+        motionPending = false;
+        xp.mouseMoved(pendingPoint);
+    }
+
     @Override
     public void mousePressed(MouseEvent e) {
-        eventOutput("Mouse pressed (# of clicks: "
-                + e.getClickCount() + ")", e);
+        // the press is where the mouse is now, so a saved move is out of date
+        motionPending = false;
         xp.notify(e, MOUSE_PRESSED);
     }
-     
+
     @Override
     public void mouseReleased(MouseEvent e) {
-        eventOutput("Mouse released (# of clicks: "
-                + e.getClickCount() + ")", e);
+        motionPending = false;
         xp.notify(e, MOUSE_RELEASED);
     }
-     
+
     @Override
     public void mouseClicked(MouseEvent e) {
-        eventOutput("Mouse clicked (# of clicks: "
-                + e.getClickCount() + ")", e);
+        motionPending = false;
         xp.notify(e, MOUSE_CLICKED);
     }
-     
+
     @Override
     public void mouseEntered(MouseEvent e) {
-        eventOutput("Mouse entered", e);
+        motion(e.getPoint());
     }
-     
+
     @Override
     public void mouseExited(MouseEvent e) {
-        eventOutput("Mouse exited", e);
+        motion(null);
+    }
+
+    @Override
+    public void mouseDragged(MouseEvent e) {
+        motion(e.getPoint());
+    }
+
+    @Override
+    public void mouseMoved(MouseEvent e) {
+        motion(e.getPoint());
     }
-}
\ No newline at end of file
+}
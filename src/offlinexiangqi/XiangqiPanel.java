@@ -15,30 +15,55 @@ public class XiangqiPanel extends JPanel {
      */
     private XiangqiBoard xb;
     
+    /**
+     * What draws the chessboard
+     */
+    private XiangqiBoardView xbv;
+    
     /**
      * The mouse listener
      */
     private XiangqiMouseListener cml;
     
     /**
-     * A reference to the most recent XiangqiPanel created
+     * Repaints this when something shown changes
+     */
+    private final RepaintScheduler scheduler;
+    
+    /**
+     * The background gradient, made again only when the height changes
      */
-    private static XiangqiPanel _this;
+    private GradientPaint background;
     
     /**
-     * When to stop the game
+     * The height the background gradient was made for
      */
-    private volatile boolean stop = false;
+    private int backgroundHeight = -1;
     
     /**
      * Default constructor
      */
     public XiangqiPanel() {
         cml = new XiangqiMouseListener(this);
-        _this = this;
         xb = new XiangqiBoard();
         xb.recalculateMoves();
+        xbv = new XiangqiBoardView(xb);
+        scheduler = new RepaintScheduler(this);
+        xbv.setRepaintScheduler(scheduler);
+        scheduler.setBeforeFrame(new Runnable() {
+            @Override
+            public void run() {
+                cml.flushMotion();
+            }
+        });
+        xb.addListener(new XiangqiBoardListener() {
+            @Override
+            public void boardChanged(XiangqiBoard xb) {
+                scheduler.requestRepaint();
+            }
+        });
         addMouseListener(cml);
+        addMouseMotionListener(cml);
         super.setVisible(true);
     }
 
@@ -57,11 +82,13 @@ public class XiangqiPanel extends JPanel {
      */
     @Override
     public void paint(Graphics g) {
-        drawBackground((Graphics2D) g, 
-                new GradientPaint(0, 0, new Color(215, 215, 215), 0, 
-                        getHeight(), new Color(238, 238, 238))
-        );
-        xb.draw(g);
+        if(backgroundHeight != getHeight()) {
+            backgroundHeight = getHeight();
+            background = new GradientPaint(0, 0, new Color(215, 215, 215), 0, 
+                    backgroundHeight, new Color(238, 238, 238));
+        }
+        drawBackground((Graphics2D) g, background);
+        xbv.draw(g);
     }
     
     /**
@@ -90,54 +117,51 @@ public class XiangqiPanel extends JPanel {
      * @param i what fired this event (See: <code>XiangqiMouseListener.MOUSE_?</code>)
      */
     public void notify(MouseEvent me, int i) {
-        String selected = xb.toSquareFromPos(me.getX(), me.getY());
+        xbv.mouseMoved(me.getPoint());
+        String selected = xbv.toSquareFromPos(me.getX(), me.getY());
         switch(i) {
             case XiangqiMouseListener.MOUSE_CLICKED:
-                if(XiangqiBoard.isValidSquare(selected)) xb.clicked(selected);
+                if(XiangqiBoard.isValidSquare(selected)) xbv.clicked(selected);
                 break;
             case XiangqiMouseListener.MOUSE_PRESSED:
-                if(XiangqiBoard.isValidSquare(selected)) xb.enableDragging(selected);
+                if(XiangqiBoard.isValidSquare(selected)) xbv.enableDragging(selected);
                 break;
             case XiangqiMouseListener.MOUSE_RELEASED:
-                if(XiangqiBoard.isValidSquare(selected)) xb.disableDragging(selected);
+                if(XiangqiBoard.isValidSquare(selected)) xbv.disableDragging(selected);
                 break;
         }
-        repaint();
     }
     
     /**
-     * Determines where the mouse currently is
-     * @return A point representing the mouse's position
+     * Notifies this that the mouse moved, so the dragged piece and the 
+     * hovered target follow it
+     * @param p where the mouse is, or null if it left
      */
-    public static Point getMouseCoordinates() {
-        return _this.getMousePosition();
+    public void mouseMoved(Point p) {
+        xbv.mouseMoved(p);
     }
     
     /**
-     * A method that starts the redrawing of the chess board constantly
+     * Asks for a frame to be drawn soon, at the start of which the latest
+     * mouse movement is passed on
+     */
+    public void requestFrame() {
+        scheduler.requestFrame();
+    }
+    
+    /**
+     * Starts drawing the chess board.<br>
+     * From then on it is redrawn whenever something shown changes.
      */
     public void start() {
-        new Thread() {
-            @Override
-            public void run() {
-                while(!stop) {
-                    repaint();
-                    /*try {
-                        Thread.sleep(1);
-                    } catch (InterruptedException ex) {
-                        ex.printStackTrace();
-                    }*/
-                }
-                System.out.println("Thread stopped!");
-            }
-        }.start();
+        scheduler.start();
     }
     
     /**
-     * Stops this thread and redrawing the chess board.
+     * Stops redrawing the chess board.
      */
     public void stop() {
-        stop = true;
+        scheduler.stop();
         //xb.printMoves();
     }
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package offlinexiangqi;
+
+import java.util.Random;
+
+/**
+ * The random keys used to hash positions<br>
+ * <br>
+ * A position's hash is the XOR of the key of every piece on its square,
+ * and of <code>SIDE</code> when black is to move, so a move only has to
+ * XOR in and out the few keys it changes.
+ * @author Jed Wang
+ */
+public final class Zobrist {
+    /**
+     * The key of each piece on each square
+     * [piece code][square index]
+     */
+    private static final long[][] PIECE_KEYS = new long[16][XiangqiBoard.BOARD_SIZE];
+    
+    /**
+     * The key XORed in when black is to move
+     */
+    public static final long SIDE;
+    
+    /**
+     * static init
+     */
+    static {
+        // a fixed seed, so hashes are the same from run to run
+        Random random = new Random(0x5869616E67716BL);
+        for(int code = 0; code < PIECE_KEYS.length; code++) {
+            if((code & ~AbstractPiece.BLACK_CODE) == 0) continue;
+            for(int square = 0; square < XiangqiBoard.BOARD_SIZE; square++) {
+                PIECE_KEYS[code][square] = random.nextLong();
+            }
+        }
+        SIDE = random.nextLong();
+    }
+    
+    /**
+     * No instances
+     */
+    private Zobrist() {
+    }
+    
+    /**
+     * Returns the key of a piece on a square
+     * @param code the piece code, 0 for none
+     * @param square the square index
+     * @return the key, 0 if there is no piece
+     */
+    public static long piece(int code, int square) {
+        return PIECE_KEYS[code][square];
+    }
+    
+    /**
+     * Hashes a position from scratch
+     * @param board the pieces, indexed by square index
+     * @param redToMove whether red is to move
+     * @return the hash of the position
+     */
+    public static long hash(AbstractPiece[] board, boolean redToMove) {
+        long output = (redToMove) ? 0 : SIDE;
+        for(int square = 0; square < XiangqiBoard.BOARD_SIZE; square++) {
+            if(board[square] != null) output ^= PIECE_KEYS[board[square].getCode()][square];
+        }
+        return output;
+    }
+}